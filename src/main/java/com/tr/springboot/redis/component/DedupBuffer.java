@@ -0,0 +1,86 @@
+package com.tr.springboot.redis.component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * 按 key 去重的本地缓冲区，供定时批量写入 redis 的组件使用
+ * <p>
+ * 写入线程持读锁向当前缓冲区添加元素；刷新时短暂加写锁整体切换缓冲区，保证切换后不会再有元素写入旧缓冲区，
+ * 旧缓冲区按每批最多 batchSize 个元素分批写入，写入失败的批次放回当前缓冲区等待下次刷新。
+ *
+ * @param <T> 元素类型
+ */
+class DedupBuffer<T> {
+
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<String, Set<T>> pending = new ConcurrentHashMap<>();
+
+    void add(String key, T element) {
+        swapLock.readLock().lock();
+        try {
+            pending.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(element);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 取出缓冲区的全部元素分批写入
+     *
+     * @param batchSize 每批最多包含的元素数，同一个 key 的元素可能分到多批
+     * @param writer    写入一批元素，key -> 元素，成功返回 true
+     * @return 写入失败放回缓冲区的元素数
+     */
+    long flush(int batchSize, Predicate<Map<String, List<T>>> writer) {
+        Map<String, Set<T>> batch;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            batch = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        long failed = 0;
+        Map<String, List<T>> chunk = new LinkedHashMap<>();
+        int size = 0;
+        for (Map.Entry<String, Set<T>> entry : batch.entrySet()) {
+            for (T element : entry.getValue()) {
+                chunk.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(element);
+                if (++size >= batchSize) {
+                    failed += write(chunk, size, writer);
+                    chunk = new LinkedHashMap<>();
+                    size = 0;
+                }
+            }
+        }
+        if (size > 0) {
+            failed += write(chunk, size, writer);
+        }
+        return failed;
+    }
+
+    private long write(Map<String, List<T>> chunk, int size, Predicate<Map<String, List<T>>> writer) {
+        if (writer.test(chunk)) {
+            return 0;
+        }
+        swapLock.readLock().lock();
+        try {
+            chunk.forEach((key, elements) -> pending.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).addAll(elements));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        return size;
+    }
+
+}
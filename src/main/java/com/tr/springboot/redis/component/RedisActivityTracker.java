@@ -0,0 +1,188 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 bitmap 的用户活跃统计
+ * <p>
+ * 每天一个 bitmap：active:{yyyyMMdd}，用户 ID 作为偏移量，1 亿用户每天约 12MB，与活跃人数无关。
+ * 活跃记录先在本地按天去重，由后台线程定时通过管道批量 setbit，每个管道最多 batch-size 条 setbit。
+ * 多天汇总由 redis 服务端 BITOP 计算，结果短暂缓存在 active:{op}:{from}:{to}，重复查询只需 BITCOUNT。
+ */
+@Component
+public class RedisActivityTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisActivityTracker.class);
+
+    private static final String KEY_PREFIX = "active:";
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 刷新周期，单位：毫秒
+     */
+    @Value("${redis.activity.flush-interval:1000}")
+    private long flushInterval;
+
+    /**
+     * 每个管道最多包含的 setbit 命令数
+     */
+    @Value("${redis.activity.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 每天的 bitmap 保留天数
+     */
+    @Value("${redis.activity.expire-days:90}")
+    private int expireDays;
+
+    /**
+     * 多天汇总结果的缓存时间，单位：秒
+     */
+    @Value("${redis.activity.rollup-ttl:60}")
+    private int rollupTtl;
+
+    private final DedupBuffer<Long> pending = new DedupBuffer<>();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-activity-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 记录用户当天活跃
+     *
+     * @param userId 用户 ID，非负整数
+     */
+    public void markActive(long userId) {
+        pending.add(key(LocalDate.now()), userId);
+    }
+
+    /**
+     * 用户某天是否活跃
+     *
+     * @param userId 用户 ID
+     * @param day    日期
+     * @return 异常返回null
+     */
+    public Boolean isActive(long userId, LocalDate day) {
+        return redisPoolService.getbit(indexdb, key(day), userId);
+    }
+
+    /**
+     * 用户最近 days 天（含今天）是否活跃过，一次网络往返
+     *
+     * @param userId 用户 ID
+     * @param days   天数
+     * @return 异常返回null
+     */
+    public Boolean wasActiveWithin(long userId, int days) {
+        LocalDate today = LocalDate.now();
+        List<Object> bits = redisPoolService.pipelined(indexdb, p -> {
+            for (int i = 0; i < days; i++) {
+                p.getbit(key(today.minusDays(i)), userId);
+            }
+        });
+        return bits == null ? null : bits.contains(Boolean.TRUE);
+    }
+
+    /**
+     * 某天的活跃用户数
+     *
+     * @param day 日期
+     * @return 异常返回null
+     */
+    public Long countActive(LocalDate day) {
+        return redisPoolService.bitcount(indexdb, key(day));
+    }
+
+    /**
+     * 一段日期内活跃过至少一天的用户数
+     *
+     * @param from 开始日期，包含
+     * @param to   结束日期，包含
+     * @return 异常返回null
+     */
+    public Long countActiveAny(LocalDate from, LocalDate to) {
+        return rollup("OR", from, to);
+    }
+
+    /**
+     * 一段日期内每天都活跃的用户数
+     *
+     * @param from 开始日期，包含
+     * @param to   结束日期，包含
+     * @return 异常返回null
+     */
+    public Long countActiveEvery(LocalDate from, LocalDate to) {
+        return rollup("AND", from, to);
+    }
+
+    private Long rollup(String op, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        keys.add(KEY_PREFIX + op.toLowerCase() + ":" + DAY.format(from) + ":" + DAY.format(to));
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(key(day));
+        }
+        return (Long) redisScripts.execute("activity_rollup", keys, Arrays.asList(op, String.valueOf(rollupTtl)));
+    }
+
+    private void flush() {
+        int seconds = (int) TimeUnit.DAYS.toSeconds(expireDays);
+        long failed = pending.flush(batchSize, chunk -> redisPoolService.pipelined(indexdb, p -> chunk.forEach((key, userIds) -> {
+            userIds.forEach(userId -> p.setbit(key, userId, true));
+            p.expire(key, seconds);
+        })) != null);
+        if (failed > 0) {
+            logger.warn("redis activity flush failed, {} records will retry next time", failed);
+        }
+    }
+
+    private String key(LocalDate day) {
+        return KEY_PREFIX + DAY.format(day);
+    }
+
+}
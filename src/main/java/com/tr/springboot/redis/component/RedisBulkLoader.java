@@ -0,0 +1,236 @@
+package com.tr.springboot.redis.component;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tr.springboot.redis.service.RedisPoolService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 批量导入：从 NDJSON 流中逐条解析 {"key":"k","value":"v","ttl":60}，按批通过管道写入 redis
+ * <p>
+ * 请求体边读边解析，不整体读入内存。每批一个管道、一次网络往返，由写入线程池执行；
+ * 同时执行中的批次数有上限，达到上限时读取线程阻塞，不再读取请求体，由 TCP 把压力传回客户端。
+ * 每批完成后的统计在读取线程中回调，调用方可以直接写入响应。
+ * 读取阻塞的 InputStream，只供 Spring MVC 的 /redis/bulk 使用，WebFlux 下不创建。
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RedisBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisBulkLoader.class);
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * 每个管道包含的命令数
+     */
+    @Value("${redis.bulk.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 每次导入同时执行中的最大批次数，也是写入线程数
+     */
+    @Value("${redis.bulk.max-in-flight:8}")
+    private int maxInFlight;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        // 提交前先获取许可，排队的任务不会超过 max-in-flight * 并发导入数
+        executor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "redis-bulk-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 导入 NDJSON 记录，ttl 单位：秒，不传或小于等于 0 表示不过期
+     *
+     * @param indexdb  选择redis库 0-15
+     * @param in       NDJSON 输入流
+     * @param listener 每批完成后回调，在调用线程中执行
+     * @return 导入汇总，解析出错时 error 不为空，出错前的批次已写入
+     */
+    public Summary load(int indexdb, InputStream in, Consumer<BatchStats> listener) {
+        long start = System.currentTimeMillis();
+        Summary summary = new Summary();
+        Semaphore permits = new Semaphore(maxInFlight);
+        Queue<BatchStats> completed = new ConcurrentLinkedQueue<>();
+        List<Record> batch = new ArrayList<>(batchSize);
+        try (MappingIterator<Record> records = objectMapper.readerFor(Record.class).readValues(in)) {
+            while (records.hasNextValue()) {
+                Record record = records.nextValue();
+                if (record.getKey() == null || record.getValue() == null) {
+                    summary.skipped++;
+                    continue;
+                }
+                batch.add(record);
+                if (batch.size() >= batchSize) {
+                    submit(indexdb, ++summary.batches, batch, permits, completed);
+                    batch = new ArrayList<>(batchSize);
+                }
+                drain(completed, summary, listener);
+            }
+            if (!batch.isEmpty()) {
+                submit(indexdb, ++summary.batches, batch, permits, completed);
+            }
+        } catch (IOException e) {
+            logger.warn("bulk load aborted after {} batches", summary.batches, e);
+            summary.error = e.getMessage();
+        } finally {
+            // 等待执行中的批次全部完成
+            permits.acquireUninterruptibly(maxInFlight);
+            drain(completed, summary, listener);
+            summary.elapsedMillis = System.currentTimeMillis() - start;
+        }
+        return summary;
+    }
+
+    private void submit(int indexdb, int seq, List<Record> batch, Semaphore permits, Queue<BatchStats> completed) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("bulk load interrupted");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    completed.add(write(indexdb, seq, batch));
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private BatchStats write(int indexdb, int seq, List<Record> batch) {
+        long start = System.currentTimeMillis();
+        List<Object> results = redisPoolService.pipelined(indexdb, p -> {
+            for (Record record : batch) {
+                if (record.getTtl() != null && record.getTtl() > 0) {
+                    p.setex(record.getKey(), record.getTtl(), record.getValue());
+                } else {
+                    p.set(record.getKey(), record.getValue());
+                }
+            }
+        });
+        int failed = batch.size();
+        if (results != null) {
+            failed = (int) results.stream().filter(result -> result instanceof Throwable).count();
+        }
+        return new BatchStats(seq, batch.size(), failed, System.currentTimeMillis() - start);
+    }
+
+    private void drain(Queue<BatchStats> completed, Summary summary, Consumer<BatchStats> listener) {
+        BatchStats stats;
+        while ((stats = completed.poll()) != null) {
+            summary.records += stats.getSize();
+            summary.failed += stats.getFailed();
+            listener.accept(stats);
+        }
+    }
+
+    /**
+     * 导入记录
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Record {
+
+        private String key;
+
+        private String value;
+
+        /**
+         * 有效期，单位：秒
+         */
+        private Integer ttl;
+    }
+
+    /**
+     * 单批统计
+     */
+    @Data
+    @AllArgsConstructor
+    public static class BatchStats {
+
+        /**
+         * 批次序号，从 1 开始，完成顺序可能与序号不同
+         */
+        private int seq;
+
+        private int size;
+
+        /**
+         * 写入失败的命令数，连接异常时整批失败
+         */
+        private int failed;
+
+        /**
+         * 管道执行耗时，单位：毫秒
+         */
+        private long millis;
+    }
+
+    /**
+     * 导入汇总
+     */
+    @Data
+    public static class Summary {
+
+        private long records;
+
+        private int batches;
+
+        private long failed;
+
+        /**
+         * 缺少 key 或 value 跳过的记录数
+         */
+        private long skipped;
+
+        private long elapsedMillis;
+
+        private String error;
+    }
+
+}
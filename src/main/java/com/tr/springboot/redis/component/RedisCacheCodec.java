@@ -0,0 +1,92 @@
+package com.tr.springboot.redis.component;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 按缓存管理器中某个缓存的 RedisCacheConfiguration 生成 key、序列化和反序列化值，与 RedisCache 的 get、put 一致
+ * <p>
+ * 用于绕过 Cache 接口直接读写 redis 的场景（mget、管道写入、响应式读取），缓存的 key 前缀、序列化方式、有效期修改后仍能互相读到。
+ */
+public final class RedisCacheCodec {
+
+    /**
+     * 与 RedisCache 一致，null 值总是以 JDK 序列化的 NullValue 存储，与值的序列化方式无关
+     */
+    private static final byte[] BINARY_NULL_VALUE = RedisSerializer.java().serialize(NullValue.INSTANCE);
+
+    private final String name;
+
+    private final RedisCacheConfiguration config;
+
+    private RedisCacheCodec(String name, RedisCacheConfiguration config) {
+        this.name = name;
+        this.config = config;
+    }
+
+    /**
+     * @param cacheManager 缓存管理器，需为 RedisCacheManager
+     * @param name         缓存名
+     */
+    public static RedisCacheCodec of(CacheManager cacheManager, String name) {
+        return new RedisCacheCodec(name, ((RedisCache) cacheManager.getCache(name)).getCacheConfiguration());
+    }
+
+    /**
+     * 缓存 key，如 user::1
+     */
+    public byte[] key(Object key) {
+        String cacheKey = key instanceof String ? (String) key : convert(key);
+        if (config.usePrefix()) {
+            cacheKey = config.getKeyPrefixFor(name) + cacheKey;
+        }
+        return ByteUtils.getBytes(config.getKeySerializationPair().write(cacheKey));
+    }
+
+    /**
+     * 序列化缓存值，null 序列化为 NullValue
+     */
+    public byte[] value(Object value) {
+        if (value == null || value instanceof NullValue) {
+            return BINARY_NULL_VALUE;
+        }
+        return ByteUtils.getBytes(config.getValueSerializationPair().write(value));
+    }
+
+    /**
+     * 反序列化缓存值
+     *
+     * @return 缓存的 null 返回 NullValue.INSTANCE
+     */
+    public Object read(byte[] value) {
+        if (Arrays.equals(BINARY_NULL_VALUE, value)) {
+            return NullValue.INSTANCE;
+        }
+        return config.getValueSerializationPair().read(ByteBuffer.wrap(value));
+    }
+
+    /**
+     * 缓存有效期，不过期时为 0
+     */
+    public Duration ttl() {
+        return config.getTtl();
+    }
+
+    private String convert(Object key) {
+        TypeDescriptor source = TypeDescriptor.forObject(key);
+        if (config.getConversionService().canConvert(source, TypeDescriptor.valueOf(String.class))) {
+            return config.getConversionService().convert(key, String.class);
+        }
+        return key.toString();
+    }
+
+}
@@ -0,0 +1,329 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis 热点计数器
+ * <p>
+ * 计数先累加到本地 LongAdder，由后台线程定时把增量通过管道批量写入 redis，高并发下每个 key 每个周期只产生一条命令。
+ * 开启分片后一个逻辑计数器分散到 N 个物理 key（key:0 ~ key:N-1），读取时汇总，避免单个热点 key 压在一个 redis 节点上。
+ * zset 计数器（按 score 排序读取）不分片。
+ * 本地未刷新的增量在进程崩溃时会丢失，最多丢失一个刷新周期的数据。
+ * 一个刷新周期内没有增量的计数器从本地移除，计数器 key、field 很多时本地内存不会一直增长。
+ * redis 不可用时增量留在本地下次重试；单条命令被拒绝（如 key 的类型不是计数器）的增量记录日志后丢弃。
+ */
+@Component
+public class RedisCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCounter.class);
+
+    /**
+     * 移除的计数器连续多少次刷新没有新增量后丢弃
+     */
+    private static final int RETIRE_FLUSHES = 2;
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 刷新周期，单位：毫秒
+     */
+    @Value("${redis.counter.flush-interval:1000}")
+    private long flushInterval;
+
+    /**
+     * 每个管道最多包含的命令数
+     */
+    @Value("${redis.counter.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 每个逻辑计数器的分片数，1 表示不分片
+     */
+    @Value("${redis.counter.shards:1}")
+    private int shards;
+
+    private final Map<CounterKey, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 已从 pending 移除的计数器，移除前已取得引用的线程可能仍在累加，每次刷新时把这部分增量放回
+     */
+    private final List<Retired> retired = new ArrayList<>();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-counter-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 计数器加 1
+     *
+     * @param key
+     */
+    public void incr(String key) {
+        incrBy(key, 1L);
+    }
+
+    /**
+     * 计数器加指定的值
+     *
+     * @param key
+     * @param increment
+     */
+    public void incrBy(String key, long increment) {
+        add(new CounterKey(key, null, false), increment);
+    }
+
+    /**
+     * hash 计数器的 field 加指定的值
+     *
+     * @param key
+     * @param field
+     * @param increment
+     */
+    public void hincrBy(String key, String field, long increment) {
+        add(new CounterKey(key, field, false), increment);
+    }
+
+    /**
+     * zset 计数器的 member 加指定的值，用于统计访问次数等需要按 score 排序读取的场景，不分片
+     *
+     * @param key
+     * @param member
+     * @param increment
+     */
+    public void zincrBy(String key, String member, long increment) {
+        add(new CounterKey(key, member, true), increment);
+    }
+
+    /**
+     * 获取计数器的值，包含 redis 中各分片之和以及本节点尚未刷新的增量
+     *
+     * @param key
+     * @return 异常返回null
+     */
+    public Long get(String key) {
+        return sum(new CounterKey(key, null, false));
+    }
+
+    /**
+     * 获取 hash 计数器 field 的值，包含 redis 中各分片之和以及本节点尚未刷新的增量
+     *
+     * @param key
+     * @param field
+     * @return 异常返回null
+     */
+    public Long hget(String key, String field) {
+        return sum(new CounterKey(key, field, false));
+    }
+
+    private Long sum(CounterKey counterKey) {
+        List<Object> values = redisPoolService.pipelined(indexdb, p -> {
+            for (int i = 0; i < shards; i++) {
+                String key = physicalKey(counterKey.key, i);
+                if (counterKey.field == null) {
+                    p.get(key);
+                } else {
+                    p.hget(key, counterKey.field);
+                }
+            }
+        });
+        if (values == null) {
+            return null;
+        }
+        long total = 0;
+        for (Object value : values) {
+            if (value instanceof String) {
+                total += Long.parseLong((String) value);
+            }
+        }
+        LongAdder local = pending.get(counterKey);
+        return local == null ? total : total + local.sum();
+    }
+
+    /**
+     * 把本地增量批量写入 redis，整个管道失败时增量放回本地等待下次刷新
+     */
+    private synchronized void flush() {
+        List<CounterKey> keys = new ArrayList<>(batchSize);
+        List<Long> deltas = new ArrayList<>(batchSize);
+        try {
+            drainRetired();
+            for (Map.Entry<CounterKey, LongAdder> entry : pending.entrySet()) {
+                // 不使用 sumThenReset，它与并发 add 同时发生时会丢数据
+                long delta = entry.getValue().sum();
+                if (delta == 0) {
+                    if (pending.remove(entry.getKey(), entry.getValue())) {
+                        retired.add(new Retired(entry.getKey(), entry.getValue()));
+                    }
+                    continue;
+                }
+                entry.getValue().add(-delta);
+                keys.add(entry.getKey());
+                deltas.add(delta);
+                if (keys.size() >= batchSize) {
+                    write(keys, deltas);
+                    keys.clear();
+                    deltas.clear();
+                }
+            }
+            if (!keys.isEmpty()) {
+                write(keys, deltas);
+            }
+        } catch (Exception e) {
+            logger.error("redis counter flush error", e);
+        }
+    }
+
+    /**
+     * 移除前已取得引用的线程可能仍在累加已移除的计数器，把这部分增量转入 pending；
+     * 连续 RETIRE_FLUSHES 次刷新都没有新增量后才丢弃，此时不会再有线程持有它的引用
+     */
+    private void drainRetired() {
+        Iterator<Retired> iterator = retired.iterator();
+        while (iterator.hasNext()) {
+            Retired entry = iterator.next();
+            long late = entry.adder.sum();
+            if (late != 0) {
+                entry.adder.add(-late);
+                add(entry.key, late);
+                entry.quietFlushes = 0;
+            } else if (++entry.quietFlushes >= RETIRE_FLUSHES) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 整个管道失败（连接异常等）时增量全部放回本地重试；单条命令失败（如 key 的类型不是计数器）重试也不会成功，记录日志后丢弃
+     */
+    private void write(List<CounterKey> keys, List<Long> deltas) {
+        List<Object> results = redisPoolService.pipelined(indexdb, p -> {
+            for (int i = 0; i < keys.size(); i++) {
+                CounterKey counterKey = keys.get(i);
+                if (counterKey.sorted) {
+                    p.zincrby(counterKey.key, deltas.get(i), counterKey.field);
+                    continue;
+                }
+                String key = physicalKey(counterKey.key, shards > 1 ? ThreadLocalRandom.current().nextInt(shards) : 0);
+                if (counterKey.field == null) {
+                    p.incrBy(key, deltas.get(i));
+                } else {
+                    p.hincrBy(key, counterKey.field, deltas.get(i));
+                }
+            }
+        });
+        if (results == null) {
+            for (int i = 0; i < keys.size(); i++) {
+                add(keys.get(i), deltas.get(i));
+            }
+            logger.warn("redis counter flush of {} counters failed, will be retried", keys.size());
+            return;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            if (results.get(i) instanceof Throwable) {
+                CounterKey counterKey = keys.get(i);
+                logger.error("redis counter {} {} rejected, drop delta {}", counterKey.key,
+                        counterKey.field == null ? "" : counterKey.field, deltas.get(i), (Throwable) results.get(i));
+            }
+        }
+    }
+
+    private void add(CounterKey counterKey, long increment) {
+        pending.computeIfAbsent(counterKey, k -> new LongAdder()).add(increment);
+    }
+
+    private String physicalKey(String key, int shard) {
+        return shards > 1 ? key + ":" + shard : key;
+    }
+
+    private static class Retired {
+
+        private final CounterKey key;
+
+        private final LongAdder adder;
+
+        private int quietFlushes;
+
+        private Retired(CounterKey key, LongAdder adder) {
+            this.key = key;
+            this.adder = adder;
+        }
+    }
+
+    private static class CounterKey {
+
+        private final String key;
+
+        private final String field;
+
+        /**
+         * 为 true 时 field 是 zset 的 member
+         */
+        private final boolean sorted;
+
+        private CounterKey(String key, String field, boolean sorted) {
+            this.key = key;
+            this.field = field;
+            this.sorted = sorted;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CounterKey)) {
+                return false;
+            }
+            CounterKey that = (CounterKey) o;
+            return sorted == that.sorted && key.equals(that.key) && Objects.equals(field, that.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, field, sorted);
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+package com.tr.springboot.redis.component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Redis 延时队列
+ * <p>
+ * 任务按到期时间存入 zset，内容存入 hash。轮询线程用一次 Lua 调用批量认领到期任务，认领的任务原子地移入处理中 zset（分数为可见性超时时间），
+ * 交给工作线程池执行，线程池排满时由轮询线程自己执行，认领到的任务不会被丢弃。执行完成后批量确认删除；
+ * 执行失败按次数退避重试，超过最大次数移入死信列表；节点宕机导致超时未确认的任务会在下次认领时重新投递，
+ * 已达到最大执行次数的同样移入死信列表，不会无限重试。每个任务同一时刻只会被一个节点认领，
+ * 每次认领带有令牌，提交结果时令牌不一致（超时后已被重新认领）的任务不做修改。
+ */
+@Component
+public class RedisDelayQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisDelayQueue.class);
+
+    private static final String KEY_PREFIX = "delay:";
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 工作线程数
+     */
+    @Value("${redis.delay-queue.workers:16}")
+    private int workers;
+
+    /**
+     * 工作线程池排队容量，轮询线程按剩余容量认领任务，排不下时由轮询线程执行
+     */
+    @Value("${redis.delay-queue.capacity:1000}")
+    private int capacity;
+
+    /**
+     * 每次最多认领的任务数
+     */
+    @Value("${redis.delay-queue.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 没有到期任务时的轮询间隔，单位：毫秒
+     */
+    @Value("${redis.delay-queue.poll-interval:100}")
+    private long pollInterval;
+
+    /**
+     * 可见性超时，单位：毫秒，认领后超过该时间未确认的任务会重新投递
+     */
+    @Value("${redis.delay-queue.visibility-timeout:60000}")
+    private long visibilityTimeout;
+
+    /**
+     * 最大执行次数，包括超时未确认的投递，超过后移入死信列表 delay:{queue}:dead
+     */
+    @Value("${redis.delay-queue.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * 重试退避基数，单位：毫秒，第 n 次重试延迟 n * retry-backoff
+     */
+    @Value("${redis.delay-queue.retry-backoff:1000}")
+    private long retryBackoff;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong claimSequence = new AtomicLong();
+
+    private final Map<String, Thread> pollers = new ConcurrentHashMap<>();
+
+    /**
+     * 各队列待批量提交的执行结果
+     */
+    private final Map<String, Queue<Result>> results = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), r -> {
+            Thread thread = new Thread(r, "redis-delay-worker");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        pollers.values().forEach(Thread::interrupt);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(visibilityTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (String queue : pollers.keySet()) {
+            commit(queue);
+        }
+    }
+
+    /**
+     * 添加延时任务
+     *
+     * @param queue   队列名称
+     * @param payload 任务内容
+     * @param delay   延迟时间
+     * @param unit    时间单位
+     * @return 成功返回任务 ID，异常返回null
+     */
+    public String schedule(String queue, String payload, long delay, TimeUnit unit) {
+        List<String> ids = schedule(queue, Collections.singletonList(payload), delay, unit);
+        return ids == null ? null : ids.get(0);
+    }
+
+    /**
+     * 批量添加延时任务，一次原子的 Lua 调用，任务内容和待执行 zset 要么都写入要么都不写入
+     *
+     * @param queue    队列名称
+     * @param payloads 任务内容
+     * @param delay    延迟时间
+     * @param unit     时间单位
+     * @return 成功按顺序返回任务 ID，异常返回null
+     */
+    public List<String> schedule(String queue, List<String> payloads, long delay, TimeUnit unit) {
+        if (payloads.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> ids = new ArrayList<>(payloads.size());
+        List<String> args = new ArrayList<>(1 + payloads.size() * 2);
+        args.add(String.valueOf(System.currentTimeMillis() + unit.toMillis(delay)));
+        for (String payload : payloads) {
+            String id = UUID.randomUUID().toString();
+            ids.add(id);
+            args.add(id);
+            args.add(payload);
+        }
+        Object added = redisScripts.execute("delay_schedule", keys(queue), args);
+        return Long.valueOf(payloads.size()).equals(added) ? ids : null;
+    }
+
+    /**
+     * 注册任务处理方法并启动轮询线程，处理方法抛出异常视为执行失败
+     *
+     * @param queue   队列名称
+     * @param handler 处理方法，参数为任务内容
+     */
+    public void subscribe(String queue, Consumer<String> handler) {
+        results.putIfAbsent(queue, new ConcurrentLinkedQueue<>());
+        pollers.computeIfAbsent(queue, k -> {
+            Thread poller = new Thread(() -> poll(queue, handler), "redis-delay-poller-" + queue);
+            poller.setDaemon(true);
+            poller.start();
+            return poller;
+        });
+    }
+
+    private void poll(String queue, Consumer<String> handler) {
+        while (running) {
+            try {
+                commit(queue);
+                // 多个队列共用线程池，剩余容量只是估计值，排不下时由 CallerRunsPolicy 在当前线程执行
+                int free = Math.min(batchSize, executor.getQueue().remainingCapacity());
+                String token = nodeId + ":" + claimSequence.incrementAndGet();
+                List<?> claimed = free <= 0 ? Collections.emptyList() : claim(queue, free, token);
+                for (int i = 0; i + 2 < claimed.size(); i += 3) {
+                    String id = (String) claimed.get(i);
+                    String payload = (String) claimed.get(i + 1);
+                    int attempts = Integer.parseInt((String) claimed.get(i + 2));
+                    executor.execute(() -> run(queue, id, token, payload, attempts, handler));
+                }
+                if (free <= 0 || claimed.size() < free * 3) {
+                    Thread.sleep(pollInterval);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("redis delay queue poll error", e);
+            }
+        }
+    }
+
+    private List<?> claim(String queue, int count, String token) {
+        Object claimed = redisScripts.execute("delay_claim", keys(queue),
+                Arrays.asList(String.valueOf(System.currentTimeMillis()), String.valueOf(count), String.valueOf(visibilityTimeout),
+                        String.valueOf(maxAttempts), token));
+        return claimed == null ? Collections.emptyList() : (List<?>) claimed;
+    }
+
+    private void run(String queue, String id, String token, String payload, int attempts, Consumer<String> handler) {
+        try {
+            handler.accept(payload);
+            results.get(queue).add(new Result(id, token, attempts, true));
+        } catch (Exception e) {
+            logger.warn("redis delay job {} of queue {} failed, attempts {}", id, queue, attempts, e);
+            results.get(queue).add(new Result(id, token, attempts, false));
+        }
+    }
+
+    /**
+     * 批量提交执行结果：成功的删除，失败的退避重试或移入死信列表，只修改令牌仍一致的任务
+     */
+    private void commit(String queue) {
+        Queue<Result> pending = results.get(queue);
+        List<Result> batch = new ArrayList<>();
+        Result polled;
+        while (batch.size() < batchSize * 10 && (polled = pending.poll()) != null) {
+            batch.add(polled);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<String> args = new ArrayList<>(batch.size() * 4);
+        for (Result result : batch) {
+            args.add(result.id);
+            args.add(result.token);
+            if (result.success) {
+                args.add("ack");
+            } else {
+                args.add(result.attempts < maxAttempts ? "retry" : "dead");
+            }
+            args.add(String.valueOf(now + result.attempts * retryBackoff));
+        }
+        Object committed = redisScripts.execute("delay_commit", keys(queue), args);
+        if (committed == null) {
+            // 提交失败的结果放回，超过可见性超时前重试提交
+            pending.addAll(batch);
+        } else if ((Long) committed < batch.size()) {
+            logger.warn("{} results of delay queue {} discarded, jobs were reclaimed after visibility timeout",
+                    batch.size() - (Long) committed, queue);
+        }
+    }
+
+    private List<String> keys(String queue) {
+        return Arrays.asList(KEY_PREFIX + queue, processingKey(queue), jobsKey(queue), attemptsKey(queue),
+                KEY_PREFIX + queue + ":claims", KEY_PREFIX + queue + ":dead");
+    }
+
+    private String processingKey(String queue) {
+        return KEY_PREFIX + queue + ":processing";
+    }
+
+    private String jobsKey(String queue) {
+        return KEY_PREFIX + queue + ":jobs";
+    }
+
+    private String attemptsKey(String queue) {
+        return KEY_PREFIX + queue + ":attempts";
+    }
+
+    private static class Result {
+
+        private final String id;
+
+        /**
+         * 认领令牌
+         */
+        private final String token;
+
+        private final int attempts;
+
+        private final boolean success;
+
+        private Result(String id, String token, int attempts, boolean success) {
+            this.id = id;
+            this.token = token;
+            this.attempts = attempts;
+            this.success = success;
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Redis 发布订阅事件总线
+ * <p>
+ * 发布：消息先进入本地有界队列立即返回，由发布线程把积压的消息合并成一个管道发送，不阻塞请求线程，队列满时丢弃并返回 false。
+ * 订阅：使用一条独立于连接池的专用连接，消息交给有界线程池分发给监听器，连接断开后自动重连并重新订阅。
+ * 连接建立到订阅确认之间新增的频道在首次确认时补订阅，不会漏掉。
+ * 频道与数据库无关，订阅连接直连 spring.redis.host 的第一个地址，适用单机和主从模式。
+ */
+@Component
+public class RedisEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisEventBus.class);
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    @Value("${spring.redis.host}")
+    private String host;
+
+    @Value("${spring.redis.port}")
+    private String port;
+
+    @Value("${spring.redis.password}")
+    private String password;
+
+    @Value("${spring.redis.timeout}")
+    private int timeout;
+
+    /**
+     * 发布队列容量
+     */
+    @Value("${redis.event-bus.publish-capacity:10000}")
+    private int publishCapacity;
+
+    /**
+     * 每个管道最多包含的消息数
+     */
+    @Value("${redis.event-bus.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 分发消息的线程数
+     */
+    @Value("${redis.event-bus.listener-threads:4}")
+    private int listenerThreads;
+
+    /**
+     * 分发线程池排队容量，排满后由订阅线程直接执行，反压到 redis
+     */
+    @Value("${redis.event-bus.listener-capacity:1000}")
+    private int listenerCapacity;
+
+    /**
+     * 订阅连接断开后的重连间隔，单位：毫秒
+     */
+    @Value("${redis.event-bus.reconnect-interval:1000}")
+    private long reconnectInterval;
+
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    private BlockingQueue<String[]> outbox;
+
+    private ThreadPoolExecutor dispatcher;
+
+    private Thread publisher;
+
+    private Thread subscriber;
+
+    /**
+     * 保护订阅状态，持锁期间可能写订阅连接
+     */
+    private final ReentrantLock subscribeLock = new ReentrantLock();
+
+    private volatile JedisPubSub pubSub;
+
+    private volatile Jedis connection;
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        outbox = new LinkedBlockingQueue<>(publishCapacity);
+        dispatcher = new ThreadPoolExecutor(listenerThreads, listenerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(listenerCapacity), r -> {
+            Thread thread = new Thread(r, "redis-event-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        publisher = new Thread(this::publishLoop, "redis-event-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        publisher.interrupt();
+        JedisPubSub current = pubSub;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+        Jedis jedis = connection;
+        if (jedis != null) {
+            jedis.close();
+        }
+        dispatcher.shutdown();
+    }
+
+    /**
+     * 异步发布消息，不等待 redis 响应
+     *
+     * @param channel 频道
+     * @param message 消息
+     * @return 发布队列已满返回 false
+     */
+    public boolean publish(String channel, String message) {
+        boolean accepted = outbox.offer(new String[]{channel, message});
+        if (!accepted) {
+            logger.warn("redis event bus outbox full, drop message of channel {}", channel);
+        }
+        return accepted;
+    }
+
+    /**
+     * 订阅频道
+     *
+     * @param channel  频道
+     * @param listener 监听器，参数为消息，在分发线程池中执行
+     */
+    public void subscribe(String channel, Consumer<String> listener) {
+        subscribeLock.lock();
+        try {
+            boolean added = !listeners.containsKey(channel);
+            listeners.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(listener);
+            if (subscriber == null) {
+                subscriber = new Thread(this::subscribeLoop, "redis-event-subscriber");
+                subscriber.setDaemon(true);
+                subscriber.start();
+                return;
+            }
+            JedisPubSub current = pubSub;
+            if (added && current != null && current.isSubscribed()) {
+                try {
+                    current.subscribe(channel);
+                } catch (JedisConnectionException e) {
+                    // 连接已断开，监听器已注册，重连时订阅 listeners 中的所有频道
+                    logger.warn("redis event bus subscribe {} failed, will subscribe on reconnect", channel, e);
+                }
+            }
+        } finally {
+            subscribeLock.unlock();
+        }
+    }
+
+    private void publishLoop() {
+        List<String[]> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                String[] first = outbox.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                outbox.drainTo(batch, batchSize - 1);
+                if (redisPoolService.pipelined(indexdb, p -> batch.forEach(m -> p.publish(m[0], m[1]))) == null) {
+                    logger.warn("redis event bus publish failed, drop {} messages", batch.size());
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("redis event bus publish error", e);
+                batch.clear();
+            }
+        }
+    }
+
+    private void subscribeLoop() {
+        while (running) {
+            Jedis jedis = null;
+            try {
+                jedis = new Jedis(host.split(",")[0], Integer.parseInt(port.split(",")[0]), timeout);
+                if (password != null && !"".equals(password.trim())) {
+                    jedis.auth(password);
+                }
+                connection = jedis;
+                Set<String> initial = new HashSet<>(listeners.keySet());
+                pubSub = new JedisPubSub() {
+
+                    private boolean confirmed;
+
+                    @Override
+                    public void onMessage(String channel, String message) {
+                        dispatch(channel, message);
+                    }
+
+                    @Override
+                    public void onSubscribe(String channel, int subscribedChannels) {
+                        if (!confirmed) {
+                            confirmed = true;
+                            subscribeMissing(this, initial);
+                        }
+                    }
+                };
+                // 阻塞直到取消订阅或连接断开
+                jedis.subscribe(pubSub, initial.toArray(new String[0]));
+            } catch (Exception e) {
+                if (running) {
+                    logger.error("redis event bus subscriber disconnected, reconnect in {}ms", reconnectInterval, e);
+                }
+            } finally {
+                // 断开后不再向旧连接发送订阅，新增的频道在重连时订阅
+                subscribeLock.lock();
+                try {
+                    pubSub = null;
+                    connection = null;
+                } finally {
+                    subscribeLock.unlock();
+                }
+                if (jedis != null) {
+                    jedis.close();
+                }
+            }
+            try {
+                Thread.sleep(reconnectInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 订阅确认之前 isSubscribed() 为 false，这期间新增的频道 subscribe 不会发送，首次确认时补订阅
+     */
+    private void subscribeMissing(JedisPubSub current, Set<String> subscribed) {
+        subscribeLock.lock();
+        try {
+            List<String> missing = new ArrayList<>();
+            for (String channel : listeners.keySet()) {
+                if (!subscribed.contains(channel)) {
+                    missing.add(channel);
+                }
+            }
+            if (!missing.isEmpty()) {
+                current.subscribe(missing.toArray(new String[0]));
+            }
+        } finally {
+            subscribeLock.unlock();
+        }
+    }
+
+    private void dispatch(String channel, String message) {
+        List<Consumer<String>> channelListeners = listeners.get(channel);
+        if (channelListeners == null) {
+            return;
+        }
+        for (Consumer<String> listener : channelListeners) {
+            dispatcher.execute(() -> {
+                try {
+                    listener.accept(message);
+                } catch (Exception e) {
+                    logger.error("redis event listener of channel {} error", channel, e);
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Redis 号段模式分布式 ID 生成器
+ * <p>
+ * 每次通过 incrBy(key, segmentSize) 向 redis 申请一段 ID，在本地依次发放，一次 redis 请求可发放 segmentSize 个 ID。
+ * 当前号段剩余不足 prefetch-ratio 时由后台线程提前申请下一段，发放过程中不需要等待 redis。
+ * 重启或预取的号段未用完时 ID 会有空洞，但不会重复，整体趋势递增。
+ * <p>
+ * 号段计数器必须持久化且不能被淘汰（开启 AOF，maxmemory-policy 为 noeviction 或 volatile-*，不要 FLUSHDB）。
+ * 计数器丢失后每次申请号段都会带上本节点发放过的最大 ID，计数器小于该值时先恢复；
+ * 发现计数器被恢复过时再通过 {@link #registerFloor(String, LongSupplier)} 注册的方法（通常查询表中最大主键）重新确定起点。
+ * 其他节点已申请但还未使用的号段无法恢复，计数器丢失期间仍可能与其发生冲突。
+ */
+@Component
+public class RedisIdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisIdGenerator.class);
+
+    private static final String KEY_PREFIX = "id:";
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 每次申请的号段大小
+     */
+    @Value("${redis.id.segment-size:1000}")
+    private long segmentSize;
+
+    /**
+     * 当前号段剩余比例低于该值时预取下一段
+     */
+    @Value("${redis.id.prefetch-ratio:0.2}")
+    private double prefetchRatio;
+
+    /**
+     * 供 Hibernate 等非 Spring 管理的对象使用
+     */
+    private static volatile RedisIdGenerator instance;
+
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * 业务名称 -> 查询已使用的最大 ID
+     */
+    private final Map<String, LongSupplier> floorSuppliers = new ConcurrentHashMap<>();
+
+    private ExecutorService prefetcher;
+
+    @PostConstruct
+    public void init() {
+        prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "redis-id-prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        instance = this;
+    }
+
+    public static RedisIdGenerator getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("RedisIdGenerator is not initialized");
+        }
+        return instance;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        prefetcher.shutdownNow();
+    }
+
+    /**
+     * 获取下一个 ID
+     *
+     * @param name 业务名称，不同业务的 ID 互不影响
+     * @return 返回 ID
+     * @throws IllegalStateException 向 redis 申请号段失败
+     */
+    public long nextId(String name) {
+        Buffer buffer = buffer(name);
+        long threshold = (long) (segmentSize * prefetchRatio);
+        while (true) {
+            Segment segment = buffer.current;
+            if (segment != null) {
+                long id = segment.cursor.getAndIncrement();
+                if (id <= segment.end) {
+                    if (segment.end - id == threshold) {
+                        prefetch(name, buffer);
+                    }
+                    return id;
+                }
+            }
+            buffer.lock.lock();
+            try {
+                // 其他线程已经切换过号段则直接重试
+                if (buffer.current == segment) {
+                    if (buffer.next != null) {
+                        buffer.current = buffer.next;
+                        buffer.next = null;
+                    } else {
+                        buffer.current = allocate(name, buffer);
+                    }
+                }
+            } finally {
+                buffer.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 保证后续发放的 ID 大于指定值，用于从数据库自增 ID 切换过来时跳过已使用的 ID
+     *
+     * @param name  业务名称
+     * @param floor 已使用的最大 ID
+     */
+    public void ensureAtLeast(String name, long floor) {
+        buffer(name).floor.accumulateAndGet(floor, Math::max);
+        redisScripts.execute("id_ensure", Collections.singletonList(KEY_PREFIX + name),
+                Collections.singletonList(String.valueOf(floor)));
+    }
+
+    /**
+     * 注册查询已使用最大 ID 的方法，号段计数器丢失后用来重新确定起点
+     *
+     * @param name     业务名称
+     * @param supplier 返回已使用的最大 ID，如表中最大主键
+     */
+    public void registerFloor(String name, LongSupplier supplier) {
+        floorSuppliers.put(name, supplier);
+    }
+
+    private Buffer buffer(String name) {
+        return buffers.computeIfAbsent(name, k -> new Buffer());
+    }
+
+    private void prefetch(String name, Buffer buffer) {
+        if (!buffer.loading.compareAndSet(false, true)) {
+            return;
+        }
+        prefetcher.execute(() -> {
+            try {
+                Segment next = allocate(name, buffer);
+                buffer.lock.lock();
+                try {
+                    buffer.next = next;
+                } finally {
+                    buffer.lock.unlock();
+                }
+            } catch (Exception e) {
+                logger.error("prefetch id segment error", e);
+            } finally {
+                buffer.loading.set(false);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Segment allocate(String name, Buffer buffer) {
+        Object result = redisScripts.execute("id_allocate", Collections.singletonList(KEY_PREFIX + name),
+                Arrays.asList(String.valueOf(segmentSize), String.valueOf(buffer.floor.get())));
+        if (!(result instanceof List)) {
+            throw new IllegalStateException("allocate id segment failed: " + name);
+        }
+        long end = (Long) ((List<Object>) result).get(0);
+        if (Long.valueOf(1L).equals(((List<Object>) result).get(1))) {
+            logger.warn("id counter {} was lost and restored from local floor {}", KEY_PREFIX + name, buffer.floor.get());
+            LongSupplier supplier = floorSuppliers.get(name);
+            if (supplier != null) {
+                // 刚申请的号段可能与其他节点写入的 ID 冲突，按最新的已使用最大 ID 重新申请
+                ensureAtLeast(name, supplier.getAsLong());
+                return allocate(name, buffer);
+            }
+        }
+        buffer.floor.accumulateAndGet(end, Math::max);
+        return new Segment(end - segmentSize + 1, end);
+    }
+
+    private static class Buffer {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final AtomicBoolean loading = new AtomicBoolean();
+
+        /**
+         * 本节点已知的最大已使用 ID，申请号段时计数器不能小于该值
+         */
+        private final AtomicLong floor = new AtomicLong();
+
+        private volatile Segment current;
+
+        private volatile Segment next;
+    }
+
+    private static class Segment {
+
+        private final AtomicLong cursor;
+
+        private final long end;
+
+        private Segment(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+}
@@ -0,0 +1,377 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.ScanResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据库导出导入，用于在环境之间复制一个数据库
+ * <p>
+ * 导出：SCAN 遍历数据库，每页 key 用一个管道执行 DUMP + PTTL，结果顺序写入内存映射文件。
+ * 导入：按顺序读取内存映射文件，每批记录用一个管道执行 RESTORE，多批并行，同时执行中的批次数有上限。
+ * <p>
+ * 文件格式：魔数 RDMP、版本号，之后每条记录为 key 长度(int)、key(原始字节)、剩余有效期毫秒(long，-1 不过期)、值长度(int)、DUMP 结果。
+ * key 全程按 byte[] 处理，不做字符编码转换，二进制 key（如 JDK 序列化的 key）导出导入后不变。
+ * DUMP 结果与 redis 版本相关，只能导入到相同或更高版本的 redis。
+ */
+@Component
+public class RedisKeyspaceTransfer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisKeyspaceTransfer.class);
+
+    private static final int MAGIC = 0x52444D50;
+
+    private static final int VERSION = 1;
+
+    /**
+     * 每次映射的文件区域大小
+     */
+    private static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    private static final byte[] SCAN_START = "0".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ALL = "*".getBytes(StandardCharsets.US_ASCII);
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    /**
+     * 导出导入文件所在目录，只能读写该目录下的文件
+     */
+    @Value("${redis.transfer.dir:transfer}")
+    private String dir;
+
+    /**
+     * 每页 SCAN 的 key 数量，也是每个管道包含的记录数
+     */
+    @Value("${redis.transfer.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 导入时并行执行的批次数
+     */
+    @Value("${redis.transfer.threads:4}")
+    private int threads;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "redis-transfer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 导出数据库中的所有 key，先写入同目录下的临时文件，完成后替换同名文件，导出失败时保留原文件
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param name    文件名
+     */
+    public Stats export(int indexdb, String name) throws IOException {
+        long start = System.currentTimeMillis();
+        Stats stats = new Stats();
+        Path file = resolve(name);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (MappedWriter writer = new MappedWriter(tmp)) {
+            writer.ensure(8).putInt(MAGIC).putInt(VERSION);
+            byte[] cursor = SCAN_START;
+            do {
+                ScanResult<byte[]> page = redisPoolService.scan(indexdb, cursor, ALL, batchSize);
+                if (page == null) {
+                    throw new IOException("scan failed, database " + indexdb + " cursor " + new String(cursor, StandardCharsets.US_ASCII));
+                }
+                List<byte[]> keys = page.getResult();
+                if (!keys.isEmpty()) {
+                    write(indexdb, keys, writer, stats);
+                }
+                cursor = page.getCursorAsBytes();
+            } while (!Arrays.equals(SCAN_START, cursor));
+            stats.bytes = writer.position();
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        stats.elapsedMillis = System.currentTimeMillis() - start;
+        logger.info("exported database {} to {}: {}", indexdb, name, stats);
+        return stats;
+    }
+
+    /**
+     * 导入文件中的所有 key
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param name    文件名
+     * @param replace key 已存在时是否覆盖，不覆盖时计入失败数
+     */
+    public Stats restore(int indexdb, String name, boolean replace) throws IOException {
+        long start = System.currentTimeMillis();
+        Stats stats = new Stats();
+        AtomicLong failed = new AtomicLong();
+        Semaphore permits = new Semaphore(threads * 2);
+        try (FileChannel channel = FileChannel.open(resolve(name), StandardOpenOption.READ)) {
+            MappedReader reader = new MappedReader(channel);
+            if (reader.ensure(8).getInt() != MAGIC || reader.buffer.getInt() != VERSION) {
+                throw new IOException("unsupported file format: " + name);
+            }
+            List<Entry> batch = new ArrayList<>(batchSize);
+            while (reader.hasRemaining()) {
+                batch.add(reader.next());
+                stats.records++;
+                if (batch.size() >= batchSize) {
+                    submit(indexdb, batch, replace, permits, failed);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(indexdb, batch, replace, permits, failed);
+            }
+            stats.bytes = channel.size();
+        } finally {
+            permits.acquireUninterruptibly(threads * 2);
+        }
+        stats.failed = failed.get();
+        stats.elapsedMillis = System.currentTimeMillis() - start;
+        logger.info("restored database {} from {}: {}", indexdb, name, stats);
+        return stats;
+    }
+
+    private Path resolve(String name) throws IOException {
+        Path base = Paths.get(dir).toAbsolutePath().normalize();
+        Path file = base.resolve(name).normalize();
+        if (!file.getParent().equals(base)) {
+            throw new IllegalArgumentException("invalid file name: " + name);
+        }
+        Files.createDirectories(base);
+        return file;
+    }
+
+    private void write(int indexdb, List<byte[]> keys, MappedWriter writer, Stats stats) throws IOException {
+        List<Object> results = redisPoolService.pipelined(indexdb, p -> keys.forEach(key -> {
+            p.dump(key);
+            p.pttl(key);
+        }));
+        if (results == null) {
+            throw new IOException("dump failed, database " + indexdb);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = results.get(i * 2);
+            Object pttl = results.get(i * 2 + 1);
+            // SCAN 之后过期或删除的 key
+            if (!(value instanceof byte[]) || !(pttl instanceof Long) || (Long) pttl == -2) {
+                stats.failed++;
+                continue;
+            }
+            byte[] key = keys.get(i);
+            byte[] dump = (byte[]) value;
+            writer.ensure(4 + key.length + 8 + 4 + dump.length)
+                    .putInt(key.length).put(key)
+                    .putLong((Long) pttl)
+                    .putInt(dump.length).put(dump);
+            stats.records++;
+        }
+    }
+
+    private void submit(int indexdb, List<Entry> batch, boolean replace, Semaphore permits, AtomicLong failed) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("restore interrupted");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    List<Object> results = redisPoolService.pipelined(indexdb, p -> batch.forEach(entry -> {
+                        if (replace) {
+                            p.del(entry.key);
+                        }
+                        p.restore(entry.key, entry.ttl, entry.value);
+                    }));
+                    if (results == null) {
+                        failed.addAndGet(batch.size());
+                    } else {
+                        failed.addAndGet(results.stream().filter(result -> result instanceof Throwable).count());
+                    }
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 导出导入统计
+     */
+    @Data
+    public static class Stats {
+
+        private long records;
+
+        /**
+         * 导出时为 SCAN 之后消失的 key 数，导入时为还原失败的 key 数
+         */
+        private long failed;
+
+        /**
+         * 文件大小
+         */
+        private long bytes;
+
+        private long elapsedMillis;
+    }
+
+    private static class Entry {
+
+        private final byte[] key;
+
+        /**
+         * RESTORE 的有效期，0 表示不过期
+         */
+        private final long ttl;
+
+        private final byte[] value;
+
+        Entry(byte[] key, long ttl, byte[] value) {
+            this.key = key;
+            this.ttl = ttl;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 按区域映射文件顺序写入，剩余空间不足一条记录时从当前位置重新映射，关闭时截断到实际长度
+     */
+    private static class MappedWriter implements Closeable {
+
+        private final FileChannel channel;
+
+        private MappedByteBuffer buffer;
+
+        /**
+         * 当前映射区域在文件中的起始位置
+         */
+        private long base;
+
+        MappedWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        MappedByteBuffer ensure(int length) throws IOException {
+            if (buffer == null || buffer.remaining() < length) {
+                base = position();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, base, Math.max(REGION_SIZE, length));
+            }
+            return buffer;
+        }
+
+        long position() {
+            return buffer == null ? 0 : base + buffer.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (buffer != null) {
+                    buffer.force();
+                    channel.truncate(position());
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * 按区域映射文件顺序读取，剩余数据不足时从当前位置重新映射
+     */
+    private static class MappedReader {
+
+        private final FileChannel channel;
+
+        private final long size;
+
+        private MappedByteBuffer buffer;
+
+        private long base;
+
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        boolean hasRemaining() {
+            return position() < size;
+        }
+
+        MappedByteBuffer ensure(int length) throws IOException {
+            if (buffer == null || buffer.remaining() < length) {
+                long position = position();
+                if (position + length > size) {
+                    throw new IOException("truncated file at " + position);
+                }
+                base = position;
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(Math.max(REGION_SIZE, length), size - base));
+            }
+            return buffer;
+        }
+
+        Entry next() throws IOException {
+            byte[] key = new byte[ensure(4).getInt()];
+            ensure(key.length + 12).get(key);
+            long pttl = buffer.getLong();
+            byte[] value = new byte[buffer.getInt()];
+            ensure(value.length).get(value);
+            return new Entry(key, Math.max(pttl, 0), value);
+        }
+
+        private long position() {
+            return buffer == null ? 0 : base + buffer.position();
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Tuple;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Redis 排行榜
+ * <p>
+ * 基于 zset，分数从高到低排名。每次更新分数时递增排行榜的版本号，本地缓存前 top-n 名，
+ * 缓存未过期时查询前 top-n 名不访问 redis；过期后用一次 Lua 调用比较版本号，版本未变只续期缓存，否则一并返回新的前 top-n 名。
+ */
+@Component
+public class RedisLeaderboard {
+
+    private static final String KEY_PREFIX = "board:";
+
+    private static final String VERSION_SUFFIX = ":version";
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 本地缓存的名次数量
+     */
+    @Value("${redis.leaderboard.top-n:100}")
+    private int topN;
+
+    /**
+     * 本地缓存有效期，单位：毫秒，过期后比较一次版本号
+     */
+    @Value("${redis.leaderboard.cache-ttl:1000}")
+    private long cacheTtl;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * 批量增加成员分数，与版本号递增在同一事务中执行，一次网络往返
+     *
+     * @param board  排行榜名称
+     * @param deltas 成员和增加的分数
+     * @return 成功返回 true
+     */
+    public boolean incrementScores(String board, Map<String, Double> deltas) {
+        return redisPoolService.transaction(indexdb, p -> {
+            deltas.forEach((member, delta) -> p.zincrby(KEY_PREFIX + board, delta, member));
+            p.incrBy(KEY_PREFIX + board + VERSION_SUFFIX, 1L);
+        }) != null;
+    }
+
+    /**
+     * 批量设置成员分数，与版本号递增在同一事务中执行，一次网络往返
+     *
+     * @param board  排行榜名称
+     * @param scores 成员和分数
+     * @return 成功返回 true
+     */
+    public boolean setScores(String board, Map<String, Double> scores) {
+        return redisPoolService.transaction(indexdb, p -> {
+            p.zadd(KEY_PREFIX + board, scores);
+            p.incrBy(KEY_PREFIX + board + VERSION_SUFFIX, 1L);
+        }) != null;
+    }
+
+    /**
+     * 分页查询，前 top-n 名走本地缓存
+     *
+     * @param board 排行榜名称
+     * @param page  页码，从 1 开始
+     * @param size  每页数量
+     * @return 异常返回null
+     * @throws IllegalArgumentException 页码或每页数量小于 1
+     */
+    public List<Entry> page(String board, int page, int size) {
+        if (page < 1 || size < 1) {
+            throw new IllegalArgumentException("invalid page " + page + " or size " + size);
+        }
+        long start = (long) (page - 1) * size;
+        long end = start + size - 1;
+        if (end < topN) {
+            Window window = window(board);
+            if (window == null) {
+                return null;
+            }
+            List<Entry> entries = window.entries;
+            return entries.subList((int) Math.min(start, entries.size()), (int) Math.min(end + 1, entries.size()));
+        }
+        Set<Tuple> tuples = redisPoolService.zrevrangeWithScores(indexdb, KEY_PREFIX + board, start, end);
+        if (tuples == null) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            entries.add(new Entry(start + entries.size() + 1, tuple.getElement(), tuple.getScore()));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 排行榜成员总数，走本地缓存
+     *
+     * @param board 排行榜名称
+     * @return 异常返回null
+     */
+    public Long total(String board) {
+        Window window = window(board);
+        return window == null ? null : window.total;
+    }
+
+    /**
+     * 查询成员及其前后各 radius 名，一次网络往返
+     *
+     * @param board  排行榜名称
+     * @param member 成员
+     * @param radius 前后各取的数量
+     * @return 成员不存在返回空集合，异常返回null
+     */
+    public List<Entry> around(String board, String member, int radius) {
+        Object result = redisScripts.execute("leaderboard_around",
+                Collections.singletonList(KEY_PREFIX + board), Arrays.asList(member, String.valueOf(radius)));
+        if (result == null) {
+            return null;
+        }
+        List<?> values = (List<?>) result;
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return toEntries((List<?>) values.get(1), (Long) values.get(0));
+    }
+
+    private Window window(String board) {
+        Window window = windows.computeIfAbsent(board, k -> new Window());
+        if (window.version != null && System.currentTimeMillis() - window.checkedAt < cacheTtl) {
+            return window;
+        }
+        // 其他线程正在刷新时直接使用旧数据
+        if (!window.lock.tryLock()) {
+            return window.version == null ? load(board, window) : window;
+        }
+        try {
+            return load(board, window);
+        } finally {
+            window.lock.unlock();
+        }
+    }
+
+    private Window load(String board, Window window) {
+        String cached = window.version == null ? "" : window.version;
+        Object result = redisScripts.execute("leaderboard_window",
+                Arrays.asList(KEY_PREFIX + board, KEY_PREFIX + board + VERSION_SUFFIX),
+                Arrays.asList(cached, String.valueOf(topN)));
+        if (result == null) {
+            return window.version == null ? null : window;
+        }
+        List<?> values = (List<?>) result;
+        if (values.size() > 1) {
+            window.entries = toEntries((List<?>) values.get(2), 0);
+            window.total = (Long) values.get(1);
+        }
+        window.version = (String) values.get(0);
+        window.checkedAt = System.currentTimeMillis();
+        return window;
+    }
+
+    private List<Entry> toEntries(List<?> values, long start) {
+        List<Entry> entries = new ArrayList<>(values.size() / 2);
+        for (int i = 0; i + 1 < values.size(); i += 2) {
+            entries.add(new Entry(start + i / 2 + 1, (String) values.get(i), Double.parseDouble((String) values.get(i + 1))));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 排行榜条目
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Entry {
+
+        /**
+         * 名次，从 1 开始
+         */
+        private long rank;
+
+        private String member;
+
+        private double score;
+    }
+
+    private static class Window {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private volatile String version;
+
+        private volatile long total;
+
+        private volatile List<Entry> entries = Collections.emptyList();
+
+        private volatile long checkedAt;
+    }
+
+}
@@ -0,0 +1,356 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地缓存，位于 redis 缓存之前
+ * <p>
+ * 每个条目带有写入时的版本号（{@link RedisVersionStamps}），读取时与 redis 中的当前版本号一致才返回，数据修改后自然失效。
+ * 定期把访问次数最多的条目快照到本地内存映射文件，启动时加载，重启后不必从空缓存开始；
+ * 加载的条目同样要版本号一致才返回，停机期间被修改的数据不会被读到。
+ * 为了不在每次命中时复制，返回的是缓存中的同一个对象，所有调用方共享，只能读取不能修改；需要修改时先复制一份。
+ * 默认关闭，redis.local-cache.enabled 开启。
+ */
+@Component
+public class RedisLocalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisLocalCache.class);
+
+    private static final int MAGIC = 0x524C4353;
+
+    private static final int FORMAT_VERSION = 1;
+
+    @Value("${redis.local-cache.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 每个缓存最多保留的条目数，超过后近似淘汰最久未访问的
+     */
+    @Value("${redis.local-cache.max-entries:10000}")
+    private int maxEntries;
+
+    /**
+     * 快照文件，为空时不做快照
+     */
+    @Value("${redis.local-cache.snapshot-file:local-cache.snapshot}")
+    private String snapshotFile;
+
+    /**
+     * 快照周期，单位：毫秒
+     */
+    @Value("${redis.local-cache.snapshot-interval:60000}")
+    private long snapshotInterval;
+
+    /**
+     * 每个缓存快照的条目数，按访问次数从多到少
+     */
+    @Value("${redis.local-cache.snapshot-size:2000}")
+    private int snapshotSize;
+
+    /**
+     * 缓存名 -> 条目
+     */
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService snapshotter;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || snapshotFile.isEmpty()) {
+            return;
+        }
+        load();
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-local-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshot, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+            try {
+                // 等待正在进行的定时快照完成，避免两次快照同时写临时文件
+                if (!snapshotter.awaitTermination(snapshotInterval, TimeUnit.MILLISECONDS)) {
+                    logger.warn("local cache snapshot still running, skip final snapshot");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            snapshot();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取本地缓存
+     *
+     * @param name    缓存名
+     * @param key     缓存 key
+     * @param version redis 中的当前版本号
+     * @return 不存在或版本号不一致返回null，返回的对象与其他调用方共享，不能修改
+     */
+    public Object get(String name, Object key, String version) {
+        if (!enabled || version == null) {
+            return null;
+        }
+        Entry entry = region(name).get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!version.equals(entry.version)) {
+            region(name).remove(key, entry);
+            return null;
+        }
+        entry.hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * 放入本地缓存
+     *
+     * @param name    缓存名
+     * @param key     缓存 key，需实现Serializable接口
+     * @param version 读取数据前从 redis 获取的版本号
+     * @param value   需实现Serializable接口，放入后不能再修改
+     */
+    public void put(String name, Object key, String version, Object value) {
+        if (!enabled || version == null || value == null) {
+            return;
+        }
+        region(name).put(key, new Entry(version, value, 1));
+    }
+
+    private Region region(String name) {
+        return regions.computeIfAbsent(name, n -> new Region(maxEntries));
+    }
+
+    /**
+     * 每个缓存取访问次数最多的条目写入临时文件，完成后替换快照文件
+     */
+    private void snapshot() {
+        try {
+            List<byte[]> records = new ArrayList<>();
+            long size = 12;
+            for (Map.Entry<String, Region> region : regions.entrySet()) {
+                byte[] name = region.getKey().getBytes(StandardCharsets.UTF_8);
+                for (Map.Entry<Object, Entry> e : region.getValue().hottest(snapshotSize)) {
+                    byte[] key = RedisPoolService.ObjTOSerialize(e.getKey());
+                    byte[] value = RedisPoolService.ObjTOSerialize(e.getValue().value);
+                    if (key == null || value == null) {
+                        continue;
+                    }
+                    byte[] version = e.getValue().version.getBytes(StandardCharsets.UTF_8);
+                    records.add(name);
+                    records.add(key);
+                    records.add(version);
+                    records.add(value);
+                    size += 16 + name.length + key.length + version.length + value.length + 8;
+                    records.add(longBytes(e.getValue().hits.get()));
+                }
+            }
+            Path file = Paths.get(snapshotFile).toAbsolutePath();
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(records.size() / 5);
+                for (int i = 0; i < records.size(); i += 5) {
+                    for (int j = 0; j < 4; j++) {
+                        buffer.putInt(records.get(i + j).length).put(records.get(i + j));
+                    }
+                    buffer.put(records.get(i + 4));
+                }
+                buffer.force();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("local cache snapshot saved, {} entries", records.size() / 5);
+        } catch (Exception e) {
+            logger.warn("local cache snapshot failed", e);
+        }
+    }
+
+    private void load() {
+        Path file = Paths.get(snapshotFile).toAbsolutePath();
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.warn("unsupported local cache snapshot {}, ignored", file);
+                return;
+            }
+            int count = buffer.getInt();
+            int loaded = 0;
+            for (int i = 0; i < count; i++) {
+                String name = new String(bytes(buffer), StandardCharsets.UTF_8);
+                Object key = RedisPoolService.unserialize(bytes(buffer));
+                String version = new String(bytes(buffer), StandardCharsets.UTF_8);
+                Object value = RedisPoolService.unserialize(bytes(buffer));
+                long hits = buffer.getLong();
+                // 类结构变化等原因无法反序列化的条目直接丢弃
+                if (key != null && value != null) {
+                    region(name).put(key, new Entry(version, value, hits));
+                    loaded++;
+                }
+            }
+            logger.info("local cache snapshot loaded, {} entries", loaded);
+        } catch (Exception e) {
+            logger.warn("local cache snapshot {} could not be loaded, starting empty", file, e);
+        }
+    }
+
+    private static byte[] bytes(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static class Entry {
+
+        private final String version;
+
+        private final Object value;
+
+        /**
+         * 访问次数，快照时按该值选取，加载后保留
+         */
+        private final AtomicLong hits;
+
+        /**
+         * 最近一次写入或命中的时间，淘汰时按该值比较
+         */
+        private volatile long lastAccess = System.nanoTime();
+
+        Entry(String version, Object value, long hits) {
+            this.version = version;
+            this.value = value;
+            this.hits = new AtomicLong(hits);
+        }
+    }
+
+    /**
+     * 单个缓存的条目，超过上限时近似淘汰最久未访问的
+     * <p>
+     * 读取不加锁，命中时只记录条目的访问时间，不维护全局的访问顺序。
+     * 写入后超过上限时，从上次淘汰停下的位置继续取 EVICTION_SAMPLES 个条目，淘汰其中最久未访问的一个，与 redis 的近似 LRU 相同。
+     */
+    private static class Region {
+
+        private static final int EVICTION_SAMPLES = 8;
+
+        private final int maxEntries;
+
+        private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<>();
+
+        private final ReentrantLock evictionLock = new ReentrantLock();
+
+        /**
+         * 淘汰采样的位置，遍历到末尾后从头开始，由 evictionLock 保护
+         */
+        private Iterator<Map.Entry<Object, Entry>> cursor;
+
+        Region(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        Entry get(Object key) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.lastAccess = System.nanoTime();
+            }
+            return entry;
+        }
+
+        void put(Object key, Entry entry) {
+            entries.put(key, entry);
+            if (entries.size() > maxEntries) {
+                evict();
+            }
+        }
+
+        void remove(Object key, Entry entry) {
+            entries.remove(key, entry);
+        }
+
+        List<Map.Entry<Object, Entry>> hottest(int limit) {
+            List<Map.Entry<Object, Entry>> copy = new ArrayList<>(entries.entrySet());
+            copy.sort(Comparator.comparingLong((Map.Entry<Object, Entry> e) -> e.getValue().hits.get()).reversed());
+            return copy.size() > limit ? copy.subList(0, limit) : copy;
+        }
+
+        private void evict() {
+            evictionLock.lock();
+            try {
+                while (entries.size() > maxEntries) {
+                    Map.Entry<Object, Entry> oldest = null;
+                    for (int i = 0; i < EVICTION_SAMPLES; i++) {
+                        if (cursor == null || !cursor.hasNext()) {
+                            cursor = entries.entrySet().iterator();
+                            if (!cursor.hasNext()) {
+                                break;
+                            }
+                        }
+                        Map.Entry<Object, Entry> sample = cursor.next();
+                        if (oldest == null || sample.getValue().lastAccess - oldest.getValue().lastAccess < 0) {
+                            oldest = sample;
+                        }
+                    }
+                    if (oldest == null) {
+                        return;
+                    }
+                    // 采样后被其他线程替换或移除的条目不删除，继续下一轮
+                    entries.remove(oldest.getKey(), oldest.getValue());
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+}
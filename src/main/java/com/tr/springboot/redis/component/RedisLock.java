@@ -0,0 +1,286 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Redis 分布式锁
+ * <p>
+ * 加锁使用 SET key token NX PX 原子完成，解锁使用 delete_if_equals 脚本校验 token 后删除，避免误删他人的锁。
+ * 持有期间由看门狗线程定时续期，一次 Lua 调用续期本节点持有的全部锁。
+ * 续期时发现锁已过期或被他人持有（key 被删除、redis 重启等），或超过一个租期没有续期成功，该锁视为丢失，
+ * 持有线程在临界区内可以通过 {@link #isHeld(String)} 检查，丢失后不应继续修改受保护的数据。
+ * 同一节点内的线程先在本地分段锁上排队，每个分段同一时刻只有一个线程去 redis 争抢，
+ * 避免所有线程一起轮询 redis。
+ */
+@Component
+public class RedisLock {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisLock.class);
+
+    private static final String KEY_PREFIX = "lock:";
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 锁租期，单位：毫秒，看门狗每 1/3 租期续期一次
+     */
+    @Value("${redis.lock.lease-time:30000}")
+    private long leaseTime;
+
+    /**
+     * 本地分段锁数量，取 2 的幂
+     */
+    @Value("${redis.lock.stripes:256}")
+    private int stripes;
+
+    /**
+     * 争抢 redis 锁失败后的最大退避时间，单位：毫秒
+     */
+    @Value("${redis.lock.max-backoff:50}")
+    private long maxBackoff;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong tokenSequence = new AtomicLong();
+
+    private final Map<String, Holder> holders = new ConcurrentHashMap<>();
+
+    private ReentrantLock[] localLocks;
+
+    private ScheduledExecutorService watchdog;
+
+    @PostConstruct
+    public void init() {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        localLocks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            localLocks[i] = new ReentrantLock();
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, leaseTime / 3);
+        watchdog.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        watchdog.shutdownNow();
+        for (String name : new ArrayList<>(holders.keySet())) {
+            Holder holder = holders.remove(name);
+            if (holder != null) {
+                release(name, holder.token);
+            }
+        }
+    }
+
+    /**
+     * 尝试加锁，同一线程可重入
+     *
+     * @param name     锁名称
+     * @param waitTime 最长等待时间
+     * @param unit     时间单位
+     * @return 加锁成功返回 true，超时、中断或 redis 异常返回 false
+     */
+    public boolean tryLock(String name, long waitTime, TimeUnit unit) {
+        Holder held = holders.get(name);
+        if (held != null && held.thread == Thread.currentThread()) {
+            held.count++;
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(waitTime);
+        ReentrantLock localLock = localLock(name);
+        try {
+            if (!localLock.tryLock(waitTime, unit)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        String token = nodeId + ":" + Thread.currentThread().getId() + ":" + tokenSequence.incrementAndGet();
+        long backoff = 1;
+        while (true) {
+            if ("OK".equals(redisPoolService.set(indexdb, KEY_PREFIX + name, token, "NX", "PX", leaseTime))) {
+                holders.put(name, new Holder(token, Thread.currentThread(), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseTime)));
+                return true;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                Thread.sleep(Math.min(remaining, ThreadLocalRandom.current().nextLong(backoff) + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff = Math.min(backoff << 1, maxBackoff);
+        }
+        localLock.unlock();
+        return false;
+    }
+
+    /**
+     * 当前线程是否仍持有锁，看门狗续期失败后返回 false
+     *
+     * @param name 锁名称
+     */
+    public boolean isHeld(String name) {
+        Holder holder = holders.get(name);
+        return holder != null && holder.thread == Thread.currentThread() && !holder.lost
+                && System.nanoTime() - holder.expiresAt < 0;
+    }
+
+    /**
+     * 解锁，必须由加锁线程调用
+     *
+     * @param name 锁名称
+     */
+    public void unlock(String name) {
+        Holder holder = holders.get(name);
+        if (holder == null || holder.thread != Thread.currentThread()) {
+            throw new IllegalMonitorStateException("current thread does not hold lock " + name);
+        }
+        if (--holder.count > 0) {
+            return;
+        }
+        holders.remove(name);
+        try {
+            release(name, holder.token);
+        } finally {
+            localLock(name).unlock();
+        }
+    }
+
+    /**
+     * 加锁执行，执行完自动解锁
+     *
+     * @param name     锁名称
+     * @param waitTime 最长等待时间
+     * @param unit     时间单位
+     * @param supplier 需要执行的方法
+     * @return 返回执行结果
+     * @throws IllegalStateException 等待超时未获取到锁，或执行期间锁已丢失
+     */
+    public <T> T executeWithLock(String name, long waitTime, TimeUnit unit, Supplier<T> supplier) {
+        if (!tryLock(name, waitTime, unit)) {
+            throw new IllegalStateException("acquire lock " + name + " timeout");
+        }
+        T result;
+        try {
+            result = supplier.get();
+            if (!isHeld(name)) {
+                throw new IllegalStateException("lock " + name + " lost during execution");
+            }
+        } finally {
+            unlock(name);
+        }
+        return result;
+    }
+
+    private void release(String name, String token) {
+        if (!redisScripts.deleteIfEquals(KEY_PREFIX + name, token)) {
+            logger.warn("redis lock {} already expired or released by others", name);
+        }
+    }
+
+    /**
+     * 看门狗续期，一次 Lua 调用续期本节点持有的全部锁，续期失败的锁标记为丢失
+     */
+    @SuppressWarnings("unchecked")
+    private void renew() {
+        Map<String, Holder> renewing = new HashMap<>();
+        holders.forEach((name, holder) -> {
+            if (!holder.lost) {
+                renewing.put(KEY_PREFIX + name, holder);
+            }
+        });
+        if (renewing.isEmpty()) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseTime);
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(leaseTime));
+        renewing.forEach((key, holder) -> {
+            keys.add(key);
+            args.add(holder.token);
+        });
+        Object lost = redisScripts.execute("lock_renew", keys, args);
+        if (!(lost instanceof List)) {
+            return;
+        }
+        for (Object key : (List<Object>) lost) {
+            renewing.get(key).lost = true;
+        }
+        renewing.values().forEach(holder -> holder.expiresAt = expiresAt);
+        if (!((List<Object>) lost).isEmpty()) {
+            logger.warn("redis lock lost before unlock: {}", lost);
+        }
+    }
+
+    private ReentrantLock localLock(String name) {
+        int h = name.hashCode();
+        return localLocks[(h ^ (h >>> 16)) & (localLocks.length - 1)];
+    }
+
+    private static class Holder {
+
+        private final String token;
+
+        private final Thread thread;
+
+        /**
+         * 重入次数，只有持有线程会修改
+         */
+        private int count = 1;
+
+        /**
+         * 看门狗续期失败，锁已过期或被他人持有
+         */
+        private volatile boolean lost;
+
+        /**
+         * 最近一次加锁或续期成功后租期到期的时间，System.nanoTime()
+         */
+        private volatile long expiresAt;
+
+        private Holder(String token, Thread thread, long expiresAt) {
+            this.token = token;
+            this.thread = thread;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
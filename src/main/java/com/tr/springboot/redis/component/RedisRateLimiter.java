@@ -0,0 +1,161 @@
+package com.tr.springboot.redis.component;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Redis 令牌桶限流器
+ * <p>
+ * 令牌的补充和扣减在一个 Lua 脚本中完成，每次判断只需一次 redis 请求，时间取 redis 服务器时间，不受各节点时钟偏差影响。
+ * 预取模式下每个节点一次从全局令牌桶中租借一小批令牌在本地发放，redis 请求量降为原来的 1/批量大小，
+ * 租借的令牌已从全局扣除，不会超发，误差只体现为令牌在节点间分布不均，由 prefetch-ratio 和 lease-time 控制。
+ */
+@Component
+public class RedisRateLimiter {
+
+    private static final String KEY_PREFIX = "rate:";
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    /**
+     * 预取模式下每批租借的令牌数占每秒速率的比例
+     */
+    @Value("${redis.rate-limiter.prefetch-ratio:0.05}")
+    private double prefetchRatio;
+
+    /**
+     * 本地租借令牌的有效期，单位：毫秒，过期未用完的令牌作废
+     */
+    @Value("${redis.rate-limiter.lease-time:1000}")
+    private long leaseTime;
+
+    /**
+     * redis 异常时是否放行
+     */
+    @Value("${redis.rate-limiter.fail-open:true}")
+    private boolean failOpen;
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 申请一个令牌
+     *
+     * @param name     限流器名称
+     * @param rate     每秒生成令牌数
+     * @param capacity 桶容量，即允许的突发量
+     * @return 获取成功返回 true
+     */
+    public boolean tryAcquire(String name, long rate, long capacity) {
+        return tryAcquire(name, rate, capacity, 1);
+    }
+
+    /**
+     * 申请指定数量的令牌，令牌不足时不扣减
+     *
+     * @param name     限流器名称
+     * @param rate     每秒生成令牌数
+     * @param capacity 桶容量，即允许的突发量
+     * @param permits  申请数量
+     * @return 获取成功返回 true
+     * @throws IllegalArgumentException rate、capacity 或 permits 不大于 0
+     */
+    public boolean tryAcquire(String name, long rate, long capacity, int permits) {
+        check(rate, capacity);
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive: " + permits);
+        }
+        Long granted = acquire(name, rate, capacity, permits, permits);
+        return granted == null ? failOpen : granted >= permits;
+    }
+
+    /**
+     * 预取模式申请一个令牌，优先使用本节点租借的令牌，用完后再向 redis 租借一批
+     *
+     * @param name     限流器名称
+     * @param rate     每秒生成令牌数
+     * @param capacity 桶容量，即允许的突发量
+     * @return 获取成功返回 true
+     * @throws IllegalArgumentException rate 或 capacity 不大于 0
+     */
+    public boolean tryAcquireLeased(String name, long rate, long capacity) {
+        check(rate, capacity);
+        Lease lease = leases.computeIfAbsent(name, k -> new Lease());
+        if (lease.tryTake()) {
+            return true;
+        }
+        lease.lock.lock();
+        try {
+            if (lease.tryTake()) {
+                return true;
+            }
+            long batch = Math.max(1, Math.min(capacity, (long) (rate * prefetchRatio)));
+            Long granted = acquire(name, rate, capacity, batch, 1);
+            if (granted == null) {
+                return failOpen;
+            }
+            if (granted <= 0) {
+                return false;
+            }
+            lease.refill(granted - 1, System.currentTimeMillis() + leaseTime);
+            return true;
+        } finally {
+            lease.lock.unlock();
+        }
+    }
+
+    /**
+     * rate 为 0 时脚本计算的过期时间为无穷大，pexpire 报错，按 fail-open 会放行所有请求，所以在调用 redis 之前检查
+     */
+    private static void check(long rate, long capacity) {
+        if (rate <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("rate and capacity must be positive: rate " + rate + ", capacity " + capacity);
+        }
+    }
+
+    private Long acquire(String name, long rate, long capacity, long requested, long min) {
+        Object granted = redisScripts.execute("rate_token_bucket", Collections.singletonList(KEY_PREFIX + name),
+                Arrays.asList(String.valueOf(rate), String.valueOf(capacity), String.valueOf(requested), String.valueOf(min)));
+        return (Long) granted;
+    }
+
+    /**
+     * 本节点租借的令牌
+     */
+    private static class Lease {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final AtomicLong remaining = new AtomicLong();
+
+        private volatile long expireAt;
+
+        private boolean tryTake() {
+            if (System.currentTimeMillis() > expireAt) {
+                return false;
+            }
+            long current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        private void refill(long permits, long expireAt) {
+            remaining.set(permits);
+            this.expireAt = expireAt;
+        }
+    }
+
+}
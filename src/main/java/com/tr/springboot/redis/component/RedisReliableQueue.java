@@ -0,0 +1,272 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Redis 可靠队列
+ * <p>
+ * 生产者通过管道批量 lpush，消费者用一次 Lua 调用从队列右侧认领最多 batch-size 个元素到自己的处理中列表，
+ * 处理完成后批量确认，处理失败的元素移入 queue:{name}:failed，确认失败时退避重试，确认成功之前不认领新的元素。
+ * 队列为空时用 brpoplpush 阻塞等待，不会空轮询 redis。
+ * 消费者定时上报心跳，心跳超时的消费者（节点宕机）由清理任务把其处理中列表的元素放回队列，元素不会丢失，但可能重复投递。
+ */
+@Component
+public class RedisReliableQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisReliableQueue.class);
+
+    private static final String KEY_PREFIX = "queue:";
+
+    /**
+     * 确认失败后的最大重试间隔，单位：毫秒
+     */
+    private static final long MAX_ACK_BACKOFF = 5000;
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 每个队列的消费线程数
+     */
+    @Value("${redis.reliable-queue.consumers:4}")
+    private int consumers;
+
+    /**
+     * 每次最多认领的元素数，也是生产者每条 lpush 命令包含的元素数
+     */
+    @Value("${redis.reliable-queue.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 队列为空时 brpoplpush 的阻塞时间，单位：秒
+     */
+    @Value("${redis.reliable-queue.block-timeout:5}")
+    private int blockTimeout;
+
+    /**
+     * 消费者心跳超时时间，单位：毫秒，超时后其处理中的元素放回队列
+     */
+    @Value("${redis.reliable-queue.dead-timeout:30000}")
+    private long deadTimeout;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 本节点的消费者，队列名称 -> 消费者 ID
+     */
+    private final Map<String, List<String>> localConsumers = new ConcurrentHashMap<>();
+
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-queue-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, deadTimeout / 3);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::reap, deadTimeout, deadTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        scheduler.shutdownNow();
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(blockTimeout + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 正常停机时立即归还未处理完的元素
+        localConsumers.forEach((queue, ids) -> ids.forEach(id -> requeue(queue, id, Long.MAX_VALUE)));
+    }
+
+    /**
+     * 批量添加元素，一次网络往返
+     *
+     * @param queue 队列名称
+     * @param items 元素
+     * @return 成功返回 true
+     */
+    public boolean push(String queue, List<String> items) {
+        return redisPoolService.pipelined(indexdb, p -> {
+            for (int i = 0; i < items.size(); i += batchSize) {
+                List<String> chunk = items.subList(i, Math.min(i + batchSize, items.size()));
+                p.lpush(KEY_PREFIX + queue, chunk.toArray(new String[0]));
+            }
+        }) != null;
+    }
+
+    /**
+     * 启动消费线程，处理方法抛出异常的元素移入 queue:{name}:failed
+     *
+     * @param queue   队列名称
+     * @param handler 处理方法，参数为元素
+     */
+    public void subscribe(String queue, Consumer<String> handler) {
+        localConsumers.computeIfAbsent(queue, k -> {
+            List<String> ids = new ArrayList<>();
+            List<Thread> started = new ArrayList<>();
+            for (int i = 0; i < consumers; i++) {
+                String consumerId = nodeId + ":" + i;
+                ids.add(consumerId);
+                Thread thread = new Thread(() -> consume(queue, consumerId, handler), "redis-queue-consumer-" + queue + "-" + i);
+                thread.setDaemon(true);
+                started.add(thread);
+            }
+            redisPoolService.pipelined(indexdb, p -> p.zadd(consumersKey(queue), heartbeats(ids)));
+            started.forEach(Thread::start);
+            threads.addAll(started);
+            return ids;
+        });
+    }
+
+    private void consume(String queue, String consumerId, Consumer<String> handler) {
+        String processing = processingKey(queue, consumerId);
+        while (running) {
+            try {
+                List<String> items = claim(queue, processing, batchSize);
+                if (items.isEmpty()) {
+                    long start = System.currentTimeMillis();
+                    String item = redisPoolService.brpoplpush(indexdb, KEY_PREFIX + queue, processing, blockTimeout);
+                    if (item == null) {
+                        // 未到阻塞时间就返回说明 redis 异常，稍后重试避免空转
+                        if (System.currentTimeMillis() - start < TimeUnit.SECONDS.toMillis(blockTimeout) / 2) {
+                            Thread.sleep(1000);
+                        }
+                        continue;
+                    }
+                    items = new ArrayList<>();
+                    items.add(item);
+                    items.addAll(claim(queue, processing, batchSize - 1));
+                }
+                List<String> failed = new ArrayList<>();
+                for (String item : items) {
+                    try {
+                        handler.accept(item);
+                    } catch (Exception e) {
+                        logger.warn("redis queue {} item handle failed: {}", queue, item, e);
+                        failed.add(item);
+                    }
+                }
+                ack(queue, processing, items, failed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("redis queue {} consume error", queue, e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> claim(String queue, String processing, int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        Object items = redisScripts.execute("queue_claim",
+                Arrays.asList(KEY_PREFIX + queue, processing), Collections.singletonList(String.valueOf(count)));
+        return items == null ? Collections.emptyList() : (List<String>) items;
+    }
+
+    /**
+     * 批量确认，一次原子的 Lua 调用，失败时退避重试直到成功或停机；停机时未确认的元素由 destroy 放回队列
+     */
+    private void ack(String queue, String processing, List<String> items, List<String> failed) throws InterruptedException {
+        List<String> args = new ArrayList<>(1 + failed.size() + items.size());
+        args.add(String.valueOf(failed.size()));
+        args.addAll(failed);
+        args.addAll(items);
+        long backoff = 100;
+        while (redisScripts.execute("queue_ack", Arrays.asList(processing, KEY_PREFIX + queue + ":failed"), args) == null) {
+            if (!running) {
+                return;
+            }
+            logger.warn("redis queue {} ack of {} items failed, retry in {} ms", queue, items.size(), backoff);
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, MAX_ACK_BACKOFF);
+        }
+    }
+
+    private void heartbeat() {
+        localConsumers.forEach((queue, ids) ->
+                redisPoolService.pipelined(indexdb, p -> p.zadd(consumersKey(queue), heartbeats(ids))));
+    }
+
+    /**
+     * 把心跳超时的消费者处理中的元素放回队列
+     */
+    private void reap() {
+        long deadline = System.currentTimeMillis() - deadTimeout;
+        for (String queue : localConsumers.keySet()) {
+            Set<String> dead = redisPoolService.zrangeByScore(indexdb, consumersKey(queue), (double) deadline, Double.NEGATIVE_INFINITY);
+            if (dead == null) {
+                continue;
+            }
+            for (String consumerId : dead) {
+                requeue(queue, consumerId, deadline);
+            }
+        }
+    }
+
+    private void requeue(String queue, String consumerId, long deadline) {
+        Object count = redisScripts.execute("queue_requeue",
+                Arrays.asList(KEY_PREFIX + queue, consumersKey(queue), processingKey(queue, consumerId)),
+                Arrays.asList(consumerId, String.valueOf(deadline)));
+        if (count instanceof Long && (Long) count > 0) {
+            logger.info("redis queue {} requeued {} items of consumer {}", queue, count, consumerId);
+        }
+    }
+
+    private Map<String, Double> heartbeats(List<String> ids) {
+        Map<String, Double> scores = new HashMap<>();
+        double now = System.currentTimeMillis();
+        ids.forEach(id -> scores.put(id, now));
+        return scores;
+    }
+
+    private String processingKey(String queue, String consumerId) {
+        return KEY_PREFIX + queue + ":processing:" + consumerId;
+    }
+
+    private String consumersKey(String queue) {
+        return KEY_PREFIX + queue + ":consumers";
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.tr.springboot.redis.component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 响应缓存：redis 中直接存放接口最终返回的 JSON 字节
+ * <p>
+ * 命中时字节原样写入响应输出流，不经过 JDK 反序列化和 Jackson 序列化；未命中时序列化一次，同一份字节既写入响应也写入 redis。
+ * key 由调用方拼上版本号，数据修改后更新版本号即可让旧响应失效，旧响应到期自动删除。
+ * 默认关闭，redis.response-cache.enabled 开启。
+ */
+@Component
+public class RedisResponseCache {
+
+    private static final String KEY_PREFIX = "response:";
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    @Value("${redis.response-cache.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 响应有效期，单位：秒
+     */
+    @Value("${redis.response-cache.expire-seconds:600}")
+    private int expireSeconds;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 命中时把缓存的 JSON 字节写入响应
+     *
+     * @param key      缓存 key，需要包含数据版本号
+     * @param response 响应
+     * @return 命中返回true，未命中或 redis 异常返回false
+     */
+    public boolean write(String key, HttpServletResponse response) throws IOException {
+        byte[] body = redisPoolService.get(indexdb, key(key));
+        if (body == null) {
+            return false;
+        }
+        write(body, response);
+        return true;
+    }
+
+    /**
+     * 序列化为 JSON 写入响应，并放入缓存
+     *
+     * @param key      缓存 key，需要包含数据版本号
+     * @param value    返回值
+     * @param response 响应
+     */
+    public void writeAndCache(String key, Object value, HttpServletResponse response) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(value);
+        redisPoolService.setex(indexdb, key(key), body, expireSeconds);
+        write(body, response);
+    }
+
+    private byte[] key(String key) {
+        return (KEY_PREFIX + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void write(byte[] body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lua 脚本注册表
+ * <p>
+ * 启动时加载 classpath:scripts/*.lua，脚本名为文件名（不含 .lua），并通过 SCRIPT LOAD 预先缓存到 redis。
+ * 执行时只发送脚本摘要（EVALSHA），redis 重启或主从切换后丢失缓存时自动回退为 EVAL。
+ * 多步操作（先判断再修改、读取并续期等）合并为一次原子的网络往返。
+ */
+@Component
+public class RedisScripts {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisScripts.class);
+
+    private static final String LOCATION = "classpath*:scripts/*.lua";
+
+    @javax.annotation.Resource
+    private RedisPoolService redisPoolService;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    private final Map<String, String> scripts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            String filename = resource.getFilename();
+            if (filename == null) {
+                continue;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                String script = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+                scripts.put(filename.substring(0, filename.length() - ".lua".length()), script);
+                if (redisPoolService.scriptLoad(indexdb, script) == null) {
+                    logger.warn("preload lua script {} failed, it will be loaded on first use", filename);
+                }
+            }
+        }
+        logger.info("loaded lua scripts: {}", scripts.keySet());
+    }
+
+    /**
+     * 执行已注册的脚本
+     *
+     * @param name 脚本名
+     * @param keys KEYS 参数
+     * @param args ARGV 参数
+     * @return 脚本返回值，异常返回null
+     * @throws IllegalArgumentException 脚本不存在
+     */
+    public Object execute(String name, List<String> keys, List<String> args) {
+        String script = scripts.get(name);
+        if (script == null) {
+            throw new IllegalArgumentException("lua script not found: " + name);
+        }
+        return redisPoolService.eval(indexdb, script, keys, args);
+    }
+
+    /**
+     * 值等于期望值时才设置新值
+     *
+     * @param key
+     * @param expect 期望值
+     * @param update 新值
+     * @return 设置成功返回 true
+     */
+    public boolean setIfEquals(String key, String expect, String update) {
+        return Long.valueOf(1L).equals(execute("set_if_equals", Collections.singletonList(key), Arrays.asList(expect, update)));
+    }
+
+    /**
+     * 值等于期望值时才设置新值，并设置有效期
+     *
+     * @param key
+     * @param expect  期望值
+     * @param update  新值
+     * @param seconds 有效期，单位：秒
+     * @return 设置成功返回 true
+     */
+    public boolean setIfEquals(String key, String expect, String update, int seconds) {
+        return Long.valueOf(1L).equals(execute("set_if_equals", Collections.singletonList(key),
+                Arrays.asList(expect, update, String.valueOf(seconds))));
+    }
+
+    /**
+     * 获取值并刷新有效期
+     *
+     * @param key
+     * @param seconds 有效期，单位：秒
+     * @return key 不存在和异常返回null
+     */
+    public String getAndExpire(String key, int seconds) {
+        return (String) execute("get_and_expire", Collections.singletonList(key), Collections.singletonList(String.valueOf(seconds)));
+    }
+
+    /**
+     * 获取值，key 不存在时设置为给定值
+     *
+     * @param key
+     * @param initial 初始值
+     * @param seconds 初始值的有效期，单位：秒
+     * @return 原值或新设置的值，异常返回null
+     */
+    public String getOrSet(String key, String initial, int seconds) {
+        return (String) execute("get_or_set", Collections.singletonList(key), Arrays.asList(initial, String.valueOf(seconds)));
+    }
+
+    /**
+     * 值等于期望值时才删除
+     *
+     * @param key
+     * @param expect 期望值
+     * @return 删除成功返回 true
+     */
+    public boolean deleteIfEquals(String key, String expect) {
+        return Long.valueOf(1L).equals(execute("delete_if_equals", Collections.singletonList(key), Collections.singletonList(expect)));
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 HyperLogLog 的 UV 统计
+ * <p>
+ * 每个页面每天一个 key：uv:{page}:{yyyyMMdd}，每个 key 固定占用约 12KB，标准误差 0.81%。
+ * 访问记录先在本地按 key 去重，由后台线程定时通过管道批量 pfadd，同一访客在一个刷新周期内的重复访问只写一次。
+ */
+@Component
+public class RedisUvCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisUvCounter.class);
+
+    private static final String KEY_PREFIX = "uv:";
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 刷新周期，单位：毫秒，也是本地去重的时间窗口
+     */
+    @Value("${redis.uv.flush-interval:1000}")
+    private long flushInterval;
+
+    /**
+     * 每个管道最多包含的访客数，也是每条 pfadd 命令最多包含的元素数
+     */
+    @Value("${redis.uv.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * key 保留天数
+     */
+    @Value("${redis.uv.expire-days:90}")
+    private int expireDays;
+
+    private final DedupBuffer<String> pending = new DedupBuffer<>();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-uv-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 记录当天的一次访问
+     *
+     * @param page      页面
+     * @param visitorId 访客标识
+     */
+    public void record(String page, String visitorId) {
+        pending.add(key(page, LocalDate.now()), visitorId);
+    }
+
+    /**
+     * 查询某天的 UV，不包含本节点尚未刷新的访问
+     *
+     * @param page 页面
+     * @param day  日期
+     * @return 异常返回null
+     */
+    public Long count(String page, LocalDate day) {
+        return redisPoolService.pfcount(indexdb, key(page, day));
+    }
+
+    /**
+     * 查询一段日期内去重后的 UV，由 redis 计算多个 HyperLogLog 的并集
+     *
+     * @param page 页面
+     * @param from 开始日期，包含
+     * @param to   结束日期，包含
+     * @return 异常返回null
+     */
+    public Long count(String page, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(key(page, day));
+        }
+        return redisPoolService.pfcount(indexdb, keys.toArray(new String[0]));
+    }
+
+    /**
+     * 每批最多 batch-size 个访客，一个管道发送，每个 key 一条 pfadd
+     */
+    private void flush() {
+        int seconds = (int) TimeUnit.DAYS.toSeconds(expireDays);
+        long failed = pending.flush(batchSize, chunk -> redisPoolService.pipelined(indexdb, p -> chunk.forEach((key, visitors) -> {
+            p.pfadd(key, visitors.toArray(new String[0]));
+            p.expire(key, seconds);
+        })) != null);
+        if (failed > 0) {
+            logger.warn("redis uv flush failed, {} visits will retry next time", failed);
+        }
+    }
+
+    private String key(String page, LocalDate day) {
+        return KEY_PREFIX + page + ":" + DAY.format(day);
+    }
+
+}
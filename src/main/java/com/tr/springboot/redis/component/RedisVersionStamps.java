@@ -0,0 +1,65 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 实体版本号，用于 ETag 条件请求
+ * <p>
+ * 每个实体一个 key：version:{type}:{id}，实体修改或删除时写入新的版本号。
+ * 版本号是随机生成的唯一值而不是递增计数，key 过期或丢失后重新生成的版本号不会与客户端缓存的旧版本号相同。
+ */
+@Component
+public class RedisVersionStamps {
+
+    private static final String KEY_PREFIX = "version:";
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 版本号有效期，单位：秒，过期后重新生成，客户端多下载一次完整数据
+     */
+    @Value("${redis.version.expire-seconds:604800}")
+    private int expireSeconds;
+
+    /**
+     * 获取实体当前版本号，不存在时生成，一次网络往返
+     *
+     * @param type 实体类型
+     * @param id   实体 ID
+     * @return 异常返回null
+     */
+    public String current(String type, Object id) {
+        return redisScripts.getOrSet(key(type, id), newStamp(), expireSeconds);
+    }
+
+    /**
+     * 实体修改或删除后更新版本号
+     *
+     * @param type 实体类型
+     * @param id   实体 ID
+     */
+    public void bump(String type, Object id) {
+        redisPoolService.setex(indexdb, key(type, id), newStamp(), expireSeconds);
+    }
+
+    private String key(String type, Object id) {
+        return KEY_PREFIX + type + ":" + id;
+    }
+
+    private static String newStamp() {
+        return Long.toString(System.currentTimeMillis(), 36) + Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.entity.User;
+import com.tr.springboot.redis.jpa.UserJpa;
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 启动时预热 user 缓存，在应用就绪之前执行完成
+ * <p>
+ * 热点用户 id 来自数据库分页（source: db）或 redis 中按访问次数排序的 zset（source: zset），
+ * zset 由 /user/{id} 的每次读取经 {@link RedisCounter} 本地汇总后定时累加，预热后只保留访问次数最多的 max-users 个。
+ * 每批用一次 findAllById 查询，结果用一个管道写入 user 缓存，key 和值按缓存管理器的 user 缓存配置序列化，多批并行。
+ * 开启延迟写回时以未写回的修改为准，已删除的用户不预热。
+ * 有效期加随机抖动，预热的 key 不会在同一时刻集中过期。预热失败只记录日志，不影响启动。
+ */
+@Component
+@ConditionalOnProperty(value = "redis.warm-up.enabled", havingValue = "true")
+public class UserCacheWarmUp implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCacheWarmUp.class);
+
+    @Resource
+    private UserJpa userJpa;
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisCounter redisCounter;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Autowired(required = false)
+    private UserWriteBehind writeBehind;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 热点 id 来源：db 或 zset
+     */
+    @Value("${redis.warm-up.source:db}")
+    private String source;
+
+    /**
+     * source 为 zset 时的 zset key，member 为用户 id，score 为访问次数
+     */
+    @Value("${redis.warm-up.hot-key:user:hot}")
+    private String hotKey;
+
+    @Value("${redis.warm-up.max-users:10000}")
+    private int maxUsers;
+
+    /**
+     * 每批查询和写入的用户数
+     */
+    @Value("${redis.warm-up.batch-size:500}")
+    private int batchSize;
+
+    @Value("${redis.warm-up.threads:4}")
+    private int threads;
+
+    /**
+     * 预热 key 的有效期，单位：秒
+     */
+    @Value("${redis.warm-up.ttl:3600}")
+    private int ttl;
+
+    /**
+     * 有效期随机增加 0 ~ ttl-jitter 秒
+     */
+    @Value("${redis.warm-up.ttl-jitter:600}")
+    private int ttlJitter;
+
+    /**
+     * 记录一次读取，source 为 zset 时累加到 hot-key
+     *
+     * @param id 用户 id
+     */
+    public void hit(Integer id) {
+        if ("zset".equals(source)) {
+            redisCounter.zincrBy(hotKey, id.toString(), 1);
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        AtomicLong loaded = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "user-cache-warm-up"));
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            RedisCacheCodec codec = RedisCacheCodec.of(cacheManager, "user");
+            if ("zset".equals(source)) {
+                Set<String> members = redisPoolService.zrevrange(indexdb, hotKey, 0, maxUsers - 1);
+                // 只保留访问次数最多的 max-users 个，zset 不会随用户数一直增长
+                redisPoolService.zremrangeByRank(indexdb, hotKey, 0, -maxUsers - 1);
+                List<Integer> ids = new ArrayList<>(batchSize);
+                for (String member : members == null ? new ArrayList<String>() : members) {
+                    try {
+                        ids.add(Integer.valueOf(member));
+                    } catch (NumberFormatException e) {
+                        logger.warn("user cache warm-up skipped invalid member {} of {}", member, hotKey);
+                        continue;
+                    }
+                    if (ids.size() >= batchSize) {
+                        List<Integer> batch = ids;
+                        futures.add(executor.submit(() -> write(codec, pendingFirst(batch, userJpa::findAllById), loaded)));
+                        ids = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!ids.isEmpty()) {
+                    List<Integer> batch = ids;
+                    futures.add(executor.submit(() -> write(codec, pendingFirst(batch, userJpa::findAllById), loaded)));
+                }
+            } else {
+                Page<User> page = null;
+                int read = 0;
+                do {
+                    Pageable request = page == null ? PageRequest.of(0, batchSize, Sort.by("id")) : page.nextPageable();
+                    page = userJpa.findAll(request);
+                    List<User> users = page.getContent();
+                    List<Integer> ids = users.stream().map(User::getId).collect(Collectors.toList());
+                    futures.add(executor.submit(() -> write(codec, pendingFirst(ids, unchanged -> users.stream()
+                            .filter(user -> unchanged.contains(user.getId())).collect(Collectors.toList())), loaded)));
+                    read += users.size();
+                } while (page.hasNext() && read < maxUsers);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            logger.info("user cache warm-up finished, {} keys loaded in {} ms", loaded.get(), System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            logger.warn("user cache warm-up failed after {} keys in {} ms", loaded.get(), System.currentTimeMillis() - start, e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 开启延迟写回时优先使用未写回的修改
+     *
+     * @param database 没有未写回修改的用户从数据库读取
+     */
+    private List<User> pendingFirst(List<Integer> ids, Function<List<Integer>, List<User>> database) {
+        return writeBehind != null ? writeBehind.loadAll(ids, database) : database.apply(ids);
+    }
+
+    /**
+     * 一个管道写入一批用户，key 和值由 {@link RedisCacheCodec} 按 user 缓存配置生成，与 cache.put 一致，缓存配置修改后预热的数据仍能被读到
+     */
+    private void write(RedisCacheCodec codec, List<User> users, AtomicLong loaded) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            RedisStringCommands commands = connection.stringCommands();
+            for (User user : users) {
+                commands.setEx(codec.key(user.getId()), ttl + ThreadLocalRandom.current().nextInt(ttlJitter + 1), codec.value(user));
+            }
+            return null;
+        });
+        loaded.addAndGet(users.size());
+    }
+
+}
@@ -0,0 +1,399 @@
+package com.tr.springboot.redis.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tr.springboot.redis.entity.User;
+import com.tr.springboot.redis.service.RedisPoolService;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 用户修改延迟写回数据库
+ * <p>
+ * 新增、修改、删除只记录到 redis hash（field 为用户 id，值为用户 JSON，删除为空字符串），同一用户只保留最后一次修改；
+ * 后台线程定期把整个 hash 原子地移入写回中 hash，合并为 JDBC 批量 upsert 和 delete 写入数据库，成功后删除写回中 hash。
+ * 进程退出或数据库异常时写回中 hash 保留，下次（包括重启后）重新写回。多个节点通过 {@link RedisLock} 保证同一时刻只有一个节点写回。
+ * 批次被数据库拒绝时逐行重试，仍被拒绝（约束冲突、字段超长等）或无法解析的修改移入 write-behind:user:failed 等待人工处理，不阻塞其他修改。
+ * 写回成功后更新列表版本号，写回期间按旧版本号缓存的列表失效。
+ * 修改记录的持久性取决于 redis 的持久化配置，需要开启 AOF。
+ */
+@Component
+@ConditionalOnProperty(value = "redis.write-behind.enabled", havingValue = "true")
+public class UserWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserWriteBehind.class);
+
+    private static final String PENDING = "write-behind:user:pending";
+
+    private static final String PENDING_SINCE = "write-behind:user:pending-since";
+
+    private static final String FLUSHING = "write-behind:user:flushing";
+
+    private static final String FLUSHING_SINCE = "write-behind:user:flushing-since";
+
+    private static final String FAILED = "write-behind:user:failed";
+
+    private static final String DELETED = "";
+
+    private static final String LOCK_NAME = "write-behind:user";
+
+    /**
+     * 与 User 实体上 RedisIdentifierGenerator 的 name 参数一致
+     */
+    private static final String ID_NAME = "user";
+
+    private static final String UPSERT_SQL = "insert into `user` (id, name, age) values (?, ?, ?) " +
+            "on duplicate key update name = values(name), age = values(age)";
+
+    private static final String DELETE_SQL = "delete from `user` where id = ?";
+
+    @Resource
+    private RedisPoolService redisPoolService;
+
+    @Resource
+    private RedisScripts redisScripts;
+
+    @Resource
+    private RedisLock redisLock;
+
+    @Resource
+    private RedisIdGenerator redisIdGenerator;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private RedisVersionStamps versionStamps;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    /**
+     * 写回周期，单位：毫秒
+     */
+    @Value("${redis.write-behind.flush-interval:1000}")
+    private long flushInterval;
+
+    /**
+     * 每个 JDBC 批次包含的语句数
+     */
+    @Value("${redis.write-behind.batch-size:500}")
+    private int batchSize;
+
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong flushed = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile long lastFlushTime;
+
+    private volatile long lastFlushSize;
+
+    private volatile long lastFlushMillis;
+
+    @PostConstruct
+    public void init() {
+        // 新增用户的 id 不经过 Hibernate 生成，先保证号段大于表中已有的 id，号段计数器丢失后重新查询
+        redisIdGenerator.ensureAtLeast(ID_NAME, maxId());
+        redisIdGenerator.registerFloor(ID_NAME, this::maxId);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 首次立即执行，写回上次退出前未完成的修改
+        flusher.scheduleWithFixedDelay(this::flush, 0, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 新增用户，id 由 RedisIdGenerator 分配
+     */
+    public User add(String name, Integer age) {
+        User user = new User(Math.toIntExact(redisIdGenerator.nextId(ID_NAME)), name, age);
+        save(user);
+        return user;
+    }
+
+    /**
+     * 记录用户修改
+     *
+     * @throws IllegalStateException redis 异常，修改未记录
+     */
+    public void save(User user) {
+        try {
+            enqueue(user.getId(), objectMapper.writeValueAsString(user));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * 记录用户删除
+     *
+     * @throws IllegalStateException redis 异常，删除未记录
+     */
+    public void delete(Integer id) {
+        enqueue(id, DELETED);
+    }
+
+    /**
+     * 读取用户，优先返回还没有写回数据库的修改
+     *
+     * @param id       用户 id
+     * @param database 没有未写回的修改时从数据库读取
+     */
+    public User load(Integer id, Supplier<User> database) {
+        String value = redisPoolService.hget(indexdb, PENDING, String.valueOf(id));
+        if (value == null) {
+            value = redisPoolService.hget(indexdb, FLUSHING, String.valueOf(id));
+        }
+        if (value == null) {
+            return database.get();
+        }
+        return DELETED.equals(value) ? null : read(value);
+    }
+
+    /**
+     * 批量读取用户，优先返回还没有写回数据库的修改，待写回 hash 和写回中 hash 各一次 hmget
+     *
+     * @param ids      用户 id
+     * @param database 没有未写回修改的用户从数据库批量读取
+     * @return 存在的用户，与 findAllById 一致，已删除和不存在的用户不返回
+     */
+    public List<User> loadAll(List<Integer> ids, Function<List<Integer>, List<User>> database) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String[] fields = new String[ids.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = String.valueOf(ids.get(i));
+        }
+        // 先读待写回 hash 再读写回中 hash，与 load 相同，两次读取之间发生的 rename 不会漏掉修改
+        List<String> pending = redisPoolService.hmget(indexdb, PENDING, fields);
+        List<String> flushing = redisPoolService.hmget(indexdb, FLUSHING, fields);
+        List<User> users = new ArrayList<>(ids.size());
+        List<Integer> unchanged = new ArrayList<>();
+        for (int i = 0; i < fields.length; i++) {
+            String value = pending != null && pending.get(i) != null ? pending.get(i) : flushing != null ? flushing.get(i) : null;
+            if (value == null) {
+                unchanged.add(ids.get(i));
+            } else if (!DELETED.equals(value)) {
+                users.add(read(value));
+            }
+        }
+        if (!unchanged.isEmpty()) {
+            users.addAll(database.apply(unchanged));
+        }
+        return users;
+    }
+
+    /**
+     * 写回统计，lagMillis 为最早一条未写回修改距今的时间
+     */
+    public Stats stats() {
+        Stats snapshot = new Stats();
+        snapshot.setPending(nullToZero(redisPoolService.hlen(indexdb, PENDING)));
+        snapshot.setFlushing(nullToZero(redisPoolService.hlen(indexdb, FLUSHING)));
+        snapshot.setFailed(nullToZero(redisPoolService.hlen(indexdb, FAILED)));
+        long oldest = Long.MAX_VALUE;
+        for (String since : Arrays.asList(redisPoolService.get(indexdb, FLUSHING_SINCE), redisPoolService.get(indexdb, PENDING_SINCE))) {
+            if (since != null) {
+                oldest = Math.min(oldest, Long.parseLong(since));
+            }
+        }
+        snapshot.setLagMillis(oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest);
+        snapshot.setFlushed(flushed.get());
+        snapshot.setFailures(failures.get());
+        snapshot.setLastFlushTime(lastFlushTime);
+        snapshot.setLastFlushSize(lastFlushSize);
+        snapshot.setLastFlushMillis(lastFlushMillis);
+        return snapshot;
+    }
+
+    private void enqueue(Integer id, String value) {
+        Object result = redisScripts.execute("write_behind_enqueue", Arrays.asList(PENDING, PENDING_SINCE),
+                Arrays.asList(String.valueOf(id), value, String.valueOf(System.currentTimeMillis())));
+        if (result == null) {
+            throw new IllegalStateException("record user change failed, id " + id);
+        }
+    }
+
+    private void flush() {
+        if (!redisLock.tryLock(LOCK_NAME, 0, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+        try {
+            Object taken = redisScripts.execute("write_behind_take", Arrays.asList(PENDING, PENDING_SINCE, FLUSHING, FLUSHING_SINCE),
+                    new ArrayList<>());
+            if (!Long.valueOf(1L).equals(taken)) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Map<String, String> changes = redisPoolService.hgetall(indexdb, FLUSHING);
+            if (changes == null) {
+                return;
+            }
+            write(changes);
+            redisPoolService.del(indexdb, FLUSHING, FLUSHING_SINCE);
+            versionStamps.bump("user", "list");
+            flushed.addAndGet(changes.size());
+            lastFlushTime = start;
+            lastFlushSize = changes.size();
+            lastFlushMillis = System.currentTimeMillis() - start;
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.warn("user write-behind flush failed, will retry", e);
+        } finally {
+            redisLock.unlock(LOCK_NAME);
+        }
+    }
+
+    private void write(Map<String, String> changes) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        Map<String, String> rejected = new HashMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            try {
+                if (DELETED.equals(change.getValue())) {
+                    deletes.add(new Object[]{Integer.valueOf(change.getKey())});
+                } else {
+                    User user = read(change.getValue());
+                    upserts.add(new Object[]{user.getId(), user.getName(), user.getAge()});
+                }
+            } catch (NumberFormatException | UncheckedIOException e) {
+                logger.error("user write-behind change {} could not be parsed, moved to {}", change.getKey(), FAILED, e);
+                rejected.put(change.getKey(), change.getValue());
+            }
+        }
+        batchUpdate(UPSERT_SQL, upserts, changes, rejected);
+        batchUpdate(DELETE_SQL, deletes, changes, rejected);
+        // 先记录失败的修改再删除写回中 hash，记录失败时整体重试
+        if (!rejected.isEmpty() && redisPoolService.hmset(indexdb, FAILED, rejected) == null) {
+            throw new IllegalStateException("record " + rejected.size() + " failed user changes failed");
+        }
+    }
+
+    /**
+     * 按批次写入，批次被数据库拒绝时逐行重试，仍被拒绝的行记入 rejected；其他异常（如数据库不可用）向上抛出，整体重试
+     *
+     * @param rows 每行第一个参数为用户 id
+     */
+    private void batchUpdate(String sql, List<Object[]> rows, Map<String, String> changes, Map<String, String> rejected) {
+        for (int i = 0; i < rows.size(); i += batchSize) {
+            List<Object[]> batch = rows.subList(i, Math.min(i + batchSize, rows.size()));
+            try {
+                jdbcTemplate.batchUpdate(sql, batch);
+            } catch (DataIntegrityViolationException e) {
+                logger.warn("user write-behind batch of {} rows rejected, retrying row by row", batch.size(), e);
+                for (Object[] row : batch) {
+                    try {
+                        jdbcTemplate.update(sql, row);
+                    } catch (DataIntegrityViolationException rowError) {
+                        String id = String.valueOf(row[0]);
+                        logger.error("user write-behind change {} rejected by database, moved to {}", id, FAILED, rowError);
+                        rejected.put(id, changes.get(id));
+                    }
+                }
+            }
+        }
+    }
+
+    private long maxId() {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from `user`", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    private User read(String json) {
+        try {
+            return objectMapper.readValue(json, User.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * 写回统计
+     */
+    @Data
+    public static class Stats {
+
+        /**
+         * 待写回的用户数
+         */
+        private long pending;
+
+        /**
+         * 写回中的用户数
+         */
+        private long flushing;
+
+        /**
+         * 被数据库拒绝或无法解析、移入 write-behind:user:failed 的修改数
+         */
+        private long failed;
+
+        /**
+         * 最早一条未写回修改距今的时间，单位：毫秒
+         */
+        private long lagMillis;
+
+        /**
+         * 本节点启动后写回的用户数
+         */
+        private long flushed;
+
+        /**
+         * 本节点写回失败（整体重试）的次数
+         */
+        private long failures;
+
+        private long lastFlushTime;
+
+        private long lastFlushSize;
+
+        private long lastFlushMillis;
+    }
+
+}
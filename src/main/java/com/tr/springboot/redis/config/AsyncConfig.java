@@ -0,0 +1,58 @@
+package com.tr.springboot.redis.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 异步接口配置
+ * <p>
+ * 异步接口返回 CompletableFuture/DeferredResult 后立即释放 Tomcat 工作线程，
+ * redis、数据库等阻塞调用在有界的 redisExecutor 中执行，排队满了直接拒绝，不会无限堆积。
+ * 只用于 Spring MVC，WebFlux 下不创建。
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AsyncConfig implements WebMvcConfigurer {
+
+    /**
+     * 异步请求超时时间，单位：毫秒，超时返回 503
+     */
+    @Value("${redis.async.timeout:3000}")
+    private long timeout;
+
+    @Value("${redis.async.core-size:32}")
+    private int coreSize;
+
+    @Value("${redis.async.max-size:64}")
+    private int maxSize;
+
+    @Value("${redis.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor redisExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("redis-async-");
+        // 排队满了抛出 RejectedExecutionException，不占用调用方线程
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeout);
+        configurer.setTaskExecutor(redisExecutor());
+    }
+
+}
@@ -1,15 +1,27 @@
 package com.tr.springboot.redis.config;
 
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.resource.ClientResources;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisSentinelPool;
 import redis.clients.jedis.JedisShardInfo;
 import redis.clients.jedis.ShardedJedisPool;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -18,6 +30,9 @@ import java.util.Set;
 @Configuration
 public class RedisConfig {
 
+    @Value("${spring.redis.database}")
+    private int database;
+
     @Value("${spring.redis.host}")
     private String host;
 
@@ -81,6 +96,75 @@ public class RedisConfig {
         return new ShardedJedisPool(getJedisPoolConfig(), shards);
     }
 
+    /**
+     * Lettuce 连接地址，数据库由使用方按需指定
+     */
+    @Bean
+    public RedisURI lettuceUri() {
+        RedisURI.Builder builder = RedisURI.builder()
+                .withHost(host)
+                .withPort(Integer.parseInt(port))
+                .withTimeout(Duration.ofMillis(timeout));
+        if (password != null && !"".equals(password.trim())) {
+            builder.withPassword(password.toCharArray());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Lettuce 客户端，StringRedisTemplate、缓存管理器、RedisPoolService、响应式接口共用，
+     * I/O 线程和事件循环使用 Spring Boot 创建的 ClientResources。
+     * 客户端交给 redisConnectionFactory，由连接工厂销毁时关闭，这里不再注册关闭方法，避免关闭两次
+     */
+    @Bean(destroyMethod = "")
+    public RedisClient lettuceClient(ClientResources clientResources) {
+        return RedisClient.create(clientResources);
+    }
+
+    /**
+     * 共享连接层，独占连接池的连接数限制沿用 jedis 连接池配置。
+     * RedisPoolService 使用 Lettuce（默认）或启用响应式接口时创建，jedisPool 等模式下不建立多余的连接。
+     * 依赖 redisConnectionFactory，保证关闭时先关闭连接，再由连接工厂关闭客户端
+     */
+    @Bean(destroyMethod = "close")
+    @DependsOn("redisConnectionFactory")
+    @ConditionalOnExpression("'${spring.redis.jedis.pool.type:lettuce}' == 'lettuce' or ${redis.reactive.enabled:false}")
+    public RedisConnections redisConnections(RedisClient lettuceClient, RedisURI lettuceUri) {
+        GenericObjectPoolConfig<StatefulRedisConnection<String, String>> config = new GenericObjectPoolConfig<>();
+        config.setMaxIdle(maxIdle);
+        config.setMaxWaitMillis(maxWaitMillis);
+        config.setBlockWhenExhausted(true);
+        config.setMaxTotal(maxActive);
+        config.setMinIdle(minIdle);
+        config.setJmxEnabled(true);
+        config.setJmxNamePrefix("lettucePool");
+        RedisConnections connections = new RedisConnections(lettuceClient, lettuceUri, config);
+        connections.warmUp(database);
+        return connections;
+    }
+
+    /**
+     * 替换 Spring Boot 自动配置的连接工厂，StringRedisTemplate 和缓存管理器不再单独创建客户端；
+     * 连接工厂销毁时会关闭 createClient 返回的客户端
+     */
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory(RedisClient lettuceClient) {
+        RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration(host, Integer.parseInt(port));
+        standalone.setDatabase(database);
+        if (password != null && !"".equals(password.trim())) {
+            standalone.setPassword(password);
+        }
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofMillis(timeout))
+                .build();
+        return new LettuceConnectionFactory(standalone, clientConfiguration) {
+            @Override
+            protected AbstractRedisClient createClient() {
+                return lettuceClient;
+            }
+        };
+    }
+
     /**
      * 构造JedisPool配置
      */
@@ -0,0 +1,125 @@
+package com.tr.springboot.redis.config;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.support.ConnectionPoolSupport;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 共享的 Lettuce 连接层，由 RedisConfig 创建一次
+ * <p>
+ * 多路复用连接：每个数据库一条，普通命令和响应式命令共用，多个线程的命令不等待前一条命令的回复直接发送。
+ * 独占连接池：事务、管道、WATCH、阻塞命令会改变或占住连接，从连接池借用，用完 release 归还，执行失败的连接 invalidate 销毁。
+ * StringRedisTemplate 和缓存管理器使用同一个 RedisClient，共享 I/O 线程和事件循环。
+ */
+public class RedisConnections {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisConnections.class);
+
+    private final RedisClient client;
+
+    private final RedisURI uri;
+
+    private final GenericObjectPool<StatefulRedisConnection<String, String>> pool;
+
+    /**
+     * 数据库索引 -> 多路复用连接
+     */
+    private final Map<Integer, StatefulRedisConnection<String, String>> connections = new ConcurrentHashMap<>();
+
+    /**
+     * 数据库索引 -> 二进制多路复用连接，使用 byte[] 方法时才创建
+     */
+    private final Map<Integer, StatefulRedisConnection<byte[], byte[]>> binaryConnections = new ConcurrentHashMap<>();
+
+    public RedisConnections(RedisClient client, RedisURI uri, GenericObjectPoolConfig<StatefulRedisConnection<String, String>> poolConfig) {
+        this.client = client;
+        this.uri = uri;
+        // 不包装连接：借用方用 release 归还、invalidate 销毁，close 会真正关闭连接
+        this.pool = ConnectionPoolSupport.createGenericObjectPool(() -> client.connect(uri), poolConfig, false);
+    }
+
+    /**
+     * 预热：建立默认数据库的多路复用连接，独占连接池补足最小空闲连接
+     *
+     * @param indexdb 默认数据库
+     */
+    public void warmUp(int indexdb) {
+        try {
+            shared(indexdb);
+            pool.preparePool();
+        } catch (Exception e) {
+            logger.warn("redis connection warm-up failed, connections will be created on first use", e);
+        }
+    }
+
+    /**
+     * 多路复用连接，不能执行 SELECT、MULTI、WATCH、阻塞命令等改变或占住连接的命令
+     *
+     * @param indexdb 数据库索引
+     */
+    public StatefulRedisConnection<String, String> shared(int indexdb) {
+        return connections.computeIfAbsent(indexdb, db -> client.connect(uri(db)));
+    }
+
+    /**
+     * 二进制多路复用连接
+     *
+     * @param indexdb 数据库索引
+     */
+    public StatefulRedisConnection<byte[], byte[]> sharedBinary(int indexdb) {
+        return binaryConnections.computeIfAbsent(indexdb, db -> client.connect(ByteArrayCodec.INSTANCE, uri(db)));
+    }
+
+    /**
+     * 从独占连接池借用连接，用完调用 release 归还，借用方负责 SELECT 并在归还前恢复连接状态
+     */
+    public StatefulRedisConnection<String, String> borrow() throws Exception {
+        return pool.borrowObject();
+    }
+
+    /**
+     * 归还借用的连接
+     */
+    public void release(StatefulRedisConnection<String, String> connection) {
+        pool.returnObject(connection);
+    }
+
+    /**
+     * 销毁借用的连接而不是归还，用于执行失败、连接状态无法确定的情况（如关闭自动刷新后仍有未发送的命令、仍处于 MULTI 或 WATCH 中）
+     */
+    public void invalidate(StatefulRedisConnection<String, String> connection) {
+        try {
+            pool.invalidateObject(connection);
+        } catch (Exception e) {
+            logger.warn("invalidate redis connection failed", e);
+        }
+    }
+
+    /**
+     * 命令超时时间
+     */
+    public Duration timeout() {
+        return uri.getTimeout();
+    }
+
+    public void close() {
+        connections.values().forEach(StatefulRedisConnection::close);
+        binaryConnections.values().forEach(StatefulRedisConnection::close);
+        pool.close();
+    }
+
+    private RedisURI uri(int indexdb) {
+        return RedisURI.builder(uri).withDatabase(indexdb).build();
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.tr.springboot.redis.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程模式，需要 JDK 21 及以上，以 virtual-threads profile 启动
+ * <p>
+ * Tomcat 每个请求在一个新的虚拟线程中处理，请求中阻塞的 redis、JDBC 调用只挂起虚拟线程，不占用平台线程。
+ * 并发上限由 redis、数据库连接池大小决定，连接池借用连接时基于 ReentrantLock 等待，不会固定载体线程。
+ * 项目仍以 Java 8 编译，虚拟线程执行器通过反射创建。
+ */
+@Configuration
+@ConditionalOnProperty(value = "redis.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads require JDK 21+, current: " + System.getProperty("java.version"), e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        logger.info("tomcat requests run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+}
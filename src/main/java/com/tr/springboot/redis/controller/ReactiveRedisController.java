@@ -0,0 +1,179 @@
+package com.tr.springboot.redis.controller;
+
+import com.tr.springboot.redis.component.RedisCacheCodec;
+import com.tr.springboot.redis.component.RedisVersionStamps;
+import com.tr.springboot.redis.component.UserCacheWarmUp;
+import com.tr.springboot.redis.component.UserWriteBehind;
+import com.tr.springboot.redis.controller.dto.UserAddDto;
+import com.tr.springboot.redis.controller.dto.UserUpdateDto;
+import com.tr.springboot.redis.entity.User;
+import com.tr.springboot.redis.jpa.UserJpa;
+import com.tr.springboot.redis.service.ReactiveRedisPoolService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.validation.Valid;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * RedisController 的响应式版本
+ * <p>
+ * redis 调用走 Lettuce 多路复用连接，不阻塞线程；数据库调用是阻塞的，放到 boundedElastic 线程池执行。
+ * 以 reactive profile 启动时运行在 WebFlux 上，否则由 Spring MVC 按异步请求处理。
+ * 没有移植的部分：本地缓存（按版本号校验，每次请求要先查一次版本号）、响应缓存（直接写 HttpServletResponse）、
+ * name 缓存的 @CachePut（注解缓存的是 Mono 对象本身，不是结果）。
+ */
+@RestController
+@ConditionalOnProperty(value = "redis.reactive.enabled", havingValue = "true")
+public class ReactiveRedisController {
+
+    @Resource
+    private ReactiveRedisPoolService reactiveRedisPoolService;
+
+    @Resource
+    private UserJpa userJpa;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private RedisVersionStamps versionStamps;
+
+    @Autowired(required = false)
+    private UserWriteBehind writeBehind;
+
+    @Autowired(required = false)
+    private UserCacheWarmUp warmUp;
+
+    @Value("${spring.redis.database}")
+    private int indexdb;
+
+    @Value("${redis.async.timeout:3000}")
+    private long timeout;
+
+    /**
+     * 按缓存管理器 user 缓存的配置生成 key 和反序列化，与 RedisController 读写同一份缓存
+     */
+    private RedisCacheCodec userCodec;
+
+    @PostConstruct
+    public void init() {
+        userCodec = RedisCacheCodec.of(cacheManager, "user");
+    }
+
+    @GetMapping("/reactive/redis/set/{database}")
+    public Mono<Void> set(@PathVariable Integer database) {
+        return reactiveRedisPoolService.setex(database, "Time:" + System.currentTimeMillis(), "Hello", 600).then();
+    }
+
+    @GetMapping("/reactive/redis/get/{database}")
+    public Mono<List<String>> get(@PathVariable Integer database) {
+        return reactiveRedisPoolService.scan(database, "Time:*")
+                .collectList()
+                .flatMap(keys -> reactiveRedisPoolService.mget(database, keys.toArray(new String[0])));
+    }
+
+    /**
+     * 与 RedisController.findById 共用 user 缓存：命中时只有一次非阻塞的 GET，未命中才到 boundedElastic 查数据库并放入缓存，null 也缓存
+     */
+    @GetMapping("/reactive/user/{id}")
+    public Mono<User> findById(@PathVariable Integer id) {
+        if (warmUp != null) {
+            warmUp.hit(id);
+        }
+        return reactiveRedisPoolService.get(indexdb, userCodec.key(id))
+                .map(userCodec::read)
+                .flatMap(cached -> cached instanceof NullValue ? Mono.empty() : Mono.just((User) cached))
+                .switchIfEmpty(Mono.defer(() -> blocking(() -> load(id))))
+                .timeout(Duration.ofMillis(timeout));
+    }
+
+    /**
+     * 同 RedisController.add，删除这个 id 可能已缓存的 null 并更新版本号
+     */
+    @PostMapping("/reactive/user")
+    public Mono<User> add(@RequestBody @Valid UserAddDto addDto) {
+        return blocking(() -> {
+            User user = writeBehind != null ? writeBehind.add(addDto.getName(), addDto.getAge())
+                    : userJpa.save(new User(null, addDto.getName(), addDto.getAge()));
+            cacheManager.getCache("user").evict(user.getId());
+            versionStamps.bump("user", user.getId());
+            versionStamps.bump("user", "list");
+            return user;
+        });
+    }
+
+    /**
+     * 同 RedisController.update，先更新缓存再更新版本号
+     */
+    @PutMapping("/reactive/user")
+    public Mono<User> update(@RequestBody UserUpdateDto updateDto) {
+        return blocking(() -> {
+            User user = new User(updateDto.getId(), updateDto.getName(), updateDto.getAge());
+            if (writeBehind != null) {
+                writeBehind.save(user);
+            } else {
+                user = userJpa.save(user);
+            }
+            cacheManager.getCache("user").put(updateDto.getId(), user);
+            versionStamps.bump("user", updateDto.getId());
+            versionStamps.bump("user", "list");
+            return user;
+        });
+    }
+
+    @DeleteMapping("/reactive/user/{id}")
+    public Mono<Void> deleteById(@PathVariable Integer id) {
+        return blocking(() -> {
+            if (writeBehind != null) {
+                writeBehind.delete(id);
+            } else {
+                userJpa.deleteById(id);
+            }
+            cacheManager.getCache("user").evict(id);
+            versionStamps.bump("user", id);
+            versionStamps.bump("user", "list");
+            return null;
+        }).then();
+    }
+
+    @GetMapping("/reactive/user/list")
+    public Flux<User> findList(User user) {
+        return blocking(() -> userJpa.findAll(UserJpa.specification(user))).flatMapIterable(users -> users);
+    }
+
+    /**
+     * 查数据库（开启延迟写回时先查未写回的修改）并放入 user 缓存
+     */
+    private User load(Integer id) {
+        User user = writeBehind != null ? writeBehind.load(id, () -> userJpa.findById(id).orElse(null))
+                : userJpa.findById(id).orElse(null);
+        cacheManager.getCache("user").put(id, user);
+        return user;
+    }
+
+    /**
+     * 数据库和版本号等阻塞调用放到 boundedElastic 执行，不占用事件循环线程
+     */
+    private <T> Mono<T> blocking(Callable<T> callable) {
+        return Mono.fromCallable(callable).subscribeOn(Schedulers.boundedElastic()).timeout(Duration.ofMillis(timeout));
+    }
+
+}
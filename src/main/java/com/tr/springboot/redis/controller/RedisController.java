@@ -1,30 +1,56 @@
 package com.tr.springboot.redis.controller;
 
-import com.google.common.collect.Lists;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tr.springboot.redis.component.RedisBulkLoader;
+import com.tr.springboot.redis.component.RedisKeyspaceTransfer;
+import com.tr.springboot.redis.component.RedisLocalCache;
+import com.tr.springboot.redis.component.RedisResponseCache;
+import com.tr.springboot.redis.component.RedisVersionStamps;
+import com.tr.springboot.redis.component.UserCacheWarmUp;
+import com.tr.springboot.redis.component.UserWriteBehind;
 import com.tr.springboot.redis.controller.dto.UserAddDto;
 import com.tr.springboot.redis.controller.dto.UserUpdateDto;
 import com.tr.springboot.redis.entity.User;
 import com.tr.springboot.redis.jpa.UserJpa;
 import com.tr.springboot.redis.service.RedisPoolService;
+import com.tr.springboot.redis.service.UserCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.annotation.Resource;
-import javax.persistence.criteria.Predicate;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -32,6 +58,7 @@ import java.util.concurrent.TimeUnit;
  * @date 2023/1/30 11:25
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET) // 依赖 Servlet API 和 DeferredResult，reactive profile 下使用 ReactiveRedisController
 public class RedisController {
 
     @Resource
@@ -62,33 +89,172 @@ public class RedisController {
         return stringRedisTemplate.opsForValue().multiGet(keys);
     }
 
+    @Resource
+    private RedisBulkLoader bulkLoader;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * 批量导入，请求体为 NDJSON，每行一条 {"key":"k","value":"v","ttl":60}
+     * 响应也是 NDJSON：每批完成后输出一行批次统计，最后一行为汇总
+     * example: curl -H 'Content-Type: application/x-ndjson' --data-binary @data.ndjson localhost:8092/redis/bulk/3
+     */
+    @PostMapping("/redis/bulk/{database}")
+    public void bulkLoad(@PathVariable Integer database, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        ServletOutputStream out = response.getOutputStream();
+        RedisBulkLoader.Summary summary = bulkLoader.load(database, request.getInputStream(), stats -> {
+            try {
+                writeLine(out, stats);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writeLine(out, summary);
+    }
+
+    private void writeLine(ServletOutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+        out.flush();
+    }
+
+    @Resource
+    private RedisKeyspaceTransfer keyspaceTransfer;
+
+    /**
+     * 导出数据库到 redis.transfer.dir 目录下的文件
+     */
+    @PostMapping("/redis/export/{database}")
+    public RedisKeyspaceTransfer.Stats export(@PathVariable Integer database, @RequestParam String name) throws IOException {
+        return keyspaceTransfer.export(database, name);
+    }
+
+    /**
+     * 从 redis.transfer.dir 目录下的文件导入数据库
+     */
+    @PostMapping("/redis/import/{database}")
+    public RedisKeyspaceTransfer.Stats restore(@PathVariable Integer database, @RequestParam String name,
+                                               @RequestParam(defaultValue = "false") boolean replace) throws IOException {
+        return keyspaceTransfer.restore(database, name, replace);
+    }
+
     // -------------------- 以下测试 @Cacheable、@CachePut、@CacheEvict --------------------
 
     @Resource
     private UserJpa userJpa;
 
-    @Cacheable(value = "user") // 存进 redis 的 key 会自动拼上参数 id，如：user::1
+    @Resource
+    private RedisVersionStamps versionStamps;
+
+    @Resource
+    private RedisResponseCache responseCache;
+
+    /**
+     * 支持条件请求：响应带 ETag，请求头 If-None-Match 与 redis 中的版本号一致时只查一次版本号，直接返回 304，不读缓存也不序列化
+     * <p>
+     * 与 @Cacheable(value = "user") 使用同一个 user 缓存，key 如：user::1；开启响应缓存后直接返回缓存的 JSON，key 如：response:user:1:{版本号}
+     */
     @GetMapping("/user/{id}")
-    public User findById(@PathVariable Integer id) {
-        return userJpa.findById(id).orElse(null);
+    public User findById(@PathVariable Integer id, WebRequest request, HttpServletResponse response) throws IOException {
+        if (warmUp != null) {
+            warmUp.hit(id);
+        }
+        String version = versionStamps.current("user", id);
+        if (version != null && request.checkNotModified("\"" + version + "\"")) {
+            return null;
+        }
+        if (responseCache.isEnabled() && version != null) {
+            String key = "user:" + id + ":" + version;
+            if (!responseCache.write(key, response)) {
+                User user = cachedUser(id, version);
+                if (user != null) {
+                    responseCache.writeAndCache(key, user, response);
+                }
+            }
+            return null;
+        }
+        return cachedUser(id, version);
     }
 
+    /**
+     * 开启 redis.warm-up.enabled 后记录每次读取，作为下次启动预热的热点来源
+     */
+    @Autowired(required = false)
+    private UserCacheWarmUp warmUp;
+
+    @Resource
+    private UserCacheService userCacheService;
+
+    /**
+     * 批量查询，按 ids 顺序返回，不存在的位置为 null
+     * example: /user/batch?ids=3,1,2
+     */
+    @GetMapping("/user/batch")
+    public List<User> findBatch(@RequestParam List<Integer> ids) {
+        return userCacheService.findAllById(ids);
+    }
+
+    /**
+     * 开启 redis.write-behind.enabled 后新增、修改、删除只记录到 redis，由后台线程批量写回数据库
+     */
+    @Autowired(required = false)
+    private UserWriteBehind writeBehind;
+
+    /**
+     * 新增前可能已经查询过这个 id（缓存了 null，客户端也拿到了 null 的 ETag），先删除缓存再更新版本号，否则新用户一直查不到或返回 304
+     */
     @CachePut(value = "name", key = "#addDto.name") // key 必须要 #，否则报错。会自动将新增的数据放入 redis，如 name::james
     @PostMapping("/user")
     public User add(@RequestBody @Valid UserAddDto addDto) {
-        return userJpa.save(new User(null, addDto.getName(), addDto.getAge()));
+        User user = writeBehind != null ? writeBehind.add(addDto.getName(), addDto.getAge())
+                : userJpa.save(new User(null, addDto.getName(), addDto.getAge()));
+        cacheManager.getCache("user").evict(user.getId());
+        versionStamps.bump("user", user.getId());
+        versionStamps.bump("user", "list");
+        return user;
     }
 
-    @CachePut(value = "user", key = "#updateDto.id") // key 必须要 #，否则报错。会同步更新 redis 数据，如 key 为 user::1 的数据，如果缓存中没有该数据则加入缓存
+    /**
+     * 不用 @CachePut：注解在方法返回后才更新缓存，晚于更新版本号，期间读到新版本号的请求会把旧数据连同新版本号放入本地缓存，
+     * 客户端拿到的新 ETag 对应的也是旧数据，之后的条件请求一直返回 304。所以先更新缓存，再更新版本号
+     */
     @PutMapping("/user")
     public User update(@RequestBody UserUpdateDto updateDto) {
-        return userJpa.save(new User(updateDto.getId(), updateDto.getName(), updateDto.getAge()));
+        User user = new User(updateDto.getId(), updateDto.getName(), updateDto.getAge());
+        if (writeBehind != null) {
+            writeBehind.save(user);
+        } else {
+            user = userJpa.save(user);
+        }
+        cacheManager.getCache("user").put(updateDto.getId(), user);
+        versionStamps.bump("user", updateDto.getId());
+        versionStamps.bump("user", "list");
+        return user;
     }
 
-    @CacheEvict(value = "user") // 会同步删除 redis 数据，如 key 为 user::1 的数据
+    /**
+     * 同 update，先删除缓存再更新版本号，不用 @CacheEvict
+     */
     @DeleteMapping("/user/{id}")
     public void deleteById(@PathVariable Integer id) {
-        userJpa.deleteById(id);
+        if (writeBehind != null) {
+            writeBehind.delete(id);
+        } else {
+            userJpa.deleteById(id);
+        }
+        cacheManager.getCache("user").evict(id);
+        versionStamps.bump("user", id);
+        versionStamps.bump("user", "list");
+    }
+
+    /**
+     * 延迟写回统计：待写回数量、最早一条未写回修改距今的时间等
+     */
+    @GetMapping("/user/write-behind/stats")
+    public UserWriteBehind.Stats writeBehindStats() {
+        return writeBehind != null ? writeBehind.stats() : null;
     }
 
     @CacheEvict(value = "user", allEntries = true) // 删除 redis 以 user:: 开头数据
@@ -103,24 +269,104 @@ public class RedisController {
 
     /**
      * 不要在这个方法上面用 @Cacheable，数据会一直拿第一次的缓存数据，除非手动干预，不会变了，即使数据库数据已经被删除或修改，还是返回之前缓存的数据
+     * <p>
+     * 开启响应缓存后不走 @Cacheable，缓存的 JSON 以列表版本号区分，add、update、delete 后失效
      */
-    @Cacheable(value = "list") // 调用 delete、update 后，查询的数据还是之前缓存的，即便数据已经不存在或被修改
+    @Cacheable(value = "list", key = "T(com.tr.springboot.redis.controller.RedisController).listQuery(#user)", condition = "!@redisResponseCache.enabled") // 调用 delete、update 后，查询的数据还是之前缓存的，即便数据已经不存在或被修改
     @GetMapping("/user/list")
-    public List<User> findList(User user) {
-        return userJpa.findAll(getSpecification(user));
+    public List<User> findList(User user, HttpServletResponse response) throws IOException {
+        String version = responseCache.isEnabled() ? versionStamps.current("user", "list") : null;
+        if (version == null) {
+            return userJpa.findAll(UserJpa.specification(user));
+        }
+        String key = "list:" + version + ":" + listQuery(user);
+        if (!responseCache.write(key, response)) {
+            responseCache.writeAndCache(key, userJpa.findAll(UserJpa.specification(user)), response);
+        }
+        return null;
     }
 
-    private Specification<User> getSpecification(User user) {
-        return (root, query, builder) -> {
-            List<Predicate> predicates = Lists.newArrayList();
-            if (Objects.nonNull(user.getName())) {
-                predicates.add(builder.like(root.get("name"), "%" + user.getName() + "%"));
-            }
-            if (Objects.nonNull(user.getAge())) {
-                predicates.add(builder.equal(root.get("age"), user.getAge()));
+    /**
+     * 列表查询条件的摘要，也用作 list 缓存的 key：不传的条件记为 ~，传入的 name 带长度前缀，name 为 "null" 或包含分隔符时也不会与其他条件混淆
+     */
+    public static String listQuery(User user) {
+        String name = user.getName() == null ? "~" : user.getName().length() + ":" + user.getName();
+        String age = user.getAge() == null ? "~" : user.getAge().toString();
+        return DigestUtils.md5DigestAsHex((name + "|" + age).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // -------------------- 以下为异步接口，redis、数据库调用在 redisExecutor 中执行，不占用 Tomcat 工作线程 --------------------
+
+    @Resource
+    private ThreadPoolTaskExecutor redisExecutor;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Value("${redis.async.timeout:3000}")
+    private long asyncTimeout;
+
+    @GetMapping("/async/redis/set/{database}")
+    public CompletableFuture<Void> setAsync(@PathVariable Integer database) {
+        return CompletableFuture.runAsync(() -> set(database), redisExecutor);
+    }
+
+    @GetMapping("/async/redis/get/{database}")
+    public CompletableFuture<List<String>> getAsync(@PathVariable Integer database) {
+        return CompletableFuture.supplyAsync(() -> get(database), redisExecutor);
+    }
+
+    /**
+     * 与 findById 共用 user 缓存，超时返回 503
+     */
+    @GetMapping("/async/user/{id}")
+    public DeferredResult<User> findByIdAsync(@PathVariable Integer id) {
+        DeferredResult<User> result = new DeferredResult<>(asyncTimeout);
+        if (warmUp != null) {
+            warmUp.hit(id);
+        }
+        redisExecutor.execute(() -> {
+            try {
+                result.setResult(cachedUser(id, null));
+            } catch (Exception e) {
+                result.setErrorResult(e);
             }
-            return builder.and(predicates.toArray(new Predicate[0]));
-        };
+        });
+        return result;
+    }
+
+    /**
+     * redisExecutor 排队已满
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void rejected() {
+    }
+
+    @Resource
+    private RedisLocalCache localCache;
+
+    /**
+     * 先查本地缓存（版本号一致才返回），再查 user 缓存，未命中查数据库并放入缓存，null 也缓存
+     *
+     * @param version 读取前获取的版本号，为 null 时不使用本地缓存
+     */
+    private User cachedUser(Integer id, String version) {
+        User user = (User) localCache.get("user", id, version);
+        if (user != null) {
+            return user;
+        }
+        Cache cache = cacheManager.getCache("user");
+        Cache.ValueWrapper cached = cache.get(id);
+        if (cached != null) {
+            user = (User) cached.get();
+        } else {
+            user = writeBehind != null ? writeBehind.load(id, () -> userJpa.findById(id).orElse(null))
+                    : userJpa.findById(id).orElse(null);
+            cache.put(id, user);
+        }
+        localCache.put("user", id, version, user);
+        return user;
     }
 
 }
@@ -3,10 +3,11 @@ package com.tr.springboot.redis.entity;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import java.io.Serializable;
 
@@ -20,7 +21,9 @@ import java.io.Serializable;
 public class User implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "redisId") // 主键由 redis 号段分配，不再依赖数据库自增，插入可以批量执行
+    @GenericGenerator(name = "redisId", strategy = "com.tr.springboot.redis.jpa.RedisIdentifierGenerator",
+            parameters = @Parameter(name = "name", value = "user"))
     private Integer id;
 
     private String name;
@@ -0,0 +1,102 @@
+package com.tr.springboot.redis.jpa;
+
+import com.tr.springboot.redis.component.RedisIdGenerator;
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于 {@link RedisIdGenerator} 的 Hibernate 主键生成器
+ * <p>
+ * 主键在插入前生成，Hibernate 可以批量插入。首次使用时读取表中最大主键，保证与原有自增主键不冲突；
+ * 同时把该查询注册给 {@link RedisIdGenerator#registerFloor}，redis 中的号段计数器丢失（重启未开启 AOF、被淘汰、FLUSHDB 等）
+ * 后重新读取最大主键，不会从小号重新发放。号段计数器仍需持久化且不能被淘汰，见 {@link RedisIdGenerator}。
+ * 参数 name 为业务名称，默认使用表名。
+ * example: @GenericGenerator(name = "redisId", strategy = "com.tr.springboot.redis.jpa.RedisIdentifierGenerator")
+ */
+public class RedisIdentifierGenerator implements IdentifierGenerator, Configurable {
+
+    private String name;
+
+    private String table;
+
+    private String column;
+
+    private Class<?> idType;
+
+    private volatile boolean initialized;
+
+    /**
+     * 首次初始化会查询数据库，使用 ReentrantLock 而不是 synchronized，虚拟线程等待时不会占住载体线程
+     */
+    private final ReentrantLock initLock = new ReentrantLock();
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        table = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        column = params.getProperty(PersistentIdentifierGenerator.PK);
+        name = params.getProperty("name", table);
+        idType = type.getReturnedClass();
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        RedisIdGenerator idGenerator = RedisIdGenerator.getInstance();
+        if (!initialized) {
+            initLock.lock();
+            try {
+                if (!initialized) {
+                    ConnectionProvider connectionProvider = session.getFactory().getServiceRegistry().getService(ConnectionProvider.class);
+                    idGenerator.ensureAtLeast(name, maxId(connectionProvider));
+                    idGenerator.registerFloor(name, () -> maxId(connectionProvider));
+                    initialized = true;
+                }
+            } finally {
+                initLock.unlock();
+            }
+        }
+        long id = idGenerator.nextId(name);
+        if (idType == Integer.class) {
+            return Math.toIntExact(id);
+        }
+        return id;
+    }
+
+    /**
+     * 使用独立连接查询，避免在当前 session 中触发 flush，号段计数器丢失后也在 session 之外调用
+     */
+    private long maxId(ConnectionProvider connectionProvider) {
+        Connection connection = null;
+        try {
+            connection = connectionProvider.getConnection();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("select max(" + column + ") from " + table)) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        } catch (SQLException e) {
+            throw new HibernateException("query max id of " + table + " failed", e);
+        } finally {
+            if (connection != null) {
+                try {
+                    connectionProvider.closeConnection(connection);
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+
+}
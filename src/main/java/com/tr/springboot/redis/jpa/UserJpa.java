@@ -1,8 +1,31 @@
 package com.tr.springboot.redis.jpa;
 
+import com.google.common.collect.Lists;
 import com.tr.springboot.redis.entity.User;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
+import javax.persistence.criteria.Predicate;
+import java.util.List;
+import java.util.Objects;
+
 public interface UserJpa extends JpaRepository<User, Integer>, JpaSpecificationExecutor<User> {
+
+    /**
+     * 列表查询条件：name 模糊匹配，age 精确匹配，为 null 的字段不作为条件
+     */
+    static Specification<User> specification(User user) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = Lists.newArrayList();
+            if (Objects.nonNull(user.getName())) {
+                predicates.add(builder.like(root.get("name"), "%" + user.getName() + "%"));
+            }
+            if (Objects.nonNull(user.getAge())) {
+                predicates.add(builder.equal(root.get("age"), user.getAge()));
+            }
+            return builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
 }
@@ -0,0 +1,163 @@
+package com.tr.springboot.redis.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis 响应式接口
+ * <p>
+ * 与 RedisPoolService 对应的非阻塞版本，所有方法立即返回，订阅后才发送命令。
+ * 异常记录日志后返回空的 Mono/Flux，与 RedisPoolService 异常返回null 一致。
+ */
+public interface ReactiveRedisPoolService {
+
+    /**
+     * 通过key获取储存在redis中的value
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @return key 不存在和异常为空
+     */
+    Mono<String> get(int indexdb, String key);
+
+    /**
+     * 通过key获取储存在redis中的二进制value，如缓存管理器写入的序列化对象
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @return key 不存在和异常为空
+     */
+    Mono<byte[]> get(int indexdb, byte[] key);
+
+    /**
+     * 向redis存入key和value，如果key已经存在 则覆盖
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @param value
+     * @return 成功返回OK
+     */
+    Mono<String> set(int indexdb, String key, String value);
+
+    /**
+     * 设置key value并制定这个键值的有效期
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @param value
+     * @param seconds 单位:秒
+     * @return 成功返回OK
+     */
+    Mono<String> setex(int indexdb, String key, String value, int seconds);
+
+    /**
+     * 删除指定的key
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param keys    一个key 也可以使 string 数组
+     * @return 返回删除成功的个数
+     */
+    Mono<Long> del(int indexdb, String... keys);
+
+    /**
+     * 判断key是否存在
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @return true OR false
+     */
+    Mono<Boolean> exists(int indexdb, String key);
+
+    /**
+     * 设置key的有效期
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @param seconds 单位:秒
+     * @return 成功返回true
+     */
+    Mono<Boolean> expire(int indexdb, String key, int seconds);
+
+    /**
+     * 通过key给指定的value加值
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @param integer 增加的值
+     * @return 加值后的结果
+     */
+    Mono<Long> incrBy(int indexdb, String key, long integer);
+
+    /**
+     * 批量获取value，key 不存在的位置为null
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param keys
+     * @return 与 keys 一一对应
+     */
+    Mono<List<String>> mget(int indexdb, String... keys);
+
+    /**
+     * 用 SCAN 分批遍历匹配的 key，不会像 KEYS 一样阻塞 redis
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param pattern 匹配规则
+     * @return 匹配的 key
+     */
+    Flux<String> scan(int indexdb, String pattern);
+
+    /**
+     * 通过key 和 field 获取指定的 value
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @param field
+     * @return 没有返回空
+     */
+    Mono<String> hget(int indexdb, String key, String field);
+
+    /**
+     * 通过key给field设置指定的值,如果key不存在,则先创建
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @param field   字段
+     * @param value
+     * @return 新增字段返回true，覆盖返回false
+     */
+    Mono<Boolean> hset(int indexdb, String key, String field, String value);
+
+    /**
+     * 通过key返回所有的field和value
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param key
+     * @return 所有的field和value
+     */
+    Mono<Map<String, String>> hgetAll(int indexdb, String key);
+
+    /**
+     * 发布消息
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param channel 频道
+     * @param message 消息
+     * @return 收到消息的订阅者数量
+     */
+    Mono<Long> publish(int indexdb, String channel, String message);
+
+    /**
+     * 执行Lua脚本
+     *
+     * @param indexdb 选择redis库 0-15
+     * @param script  Lua脚本
+     * @param keys    KEYS 参数
+     * @param args    ARGV 参数
+     * @return 脚本返回值
+     */
+    <T> Flux<T> eval(int indexdb, String script, List<String> keys, List<String> args);
+
+}
@@ -0,0 +1,222 @@
+package com.tr.springboot.redis.service;
+
+import java.util.Map;
+
+/**
+ * Redis 管道命令
+ * <p>
+ * 通过 {@link RedisPoolService#pipelined} 使用，命令先在客户端排队，最后一次性发送并按顺序返回结果，
+ * 多条命令只需一次网络往返
+ */
+public interface RedisPipeline {
+
+    /**
+     * 通过key获取储存在redis中的value
+     *
+     * @param key
+     */
+    void get(String key);
+
+    /**
+     * 通过key给指定的value加值,如果key不存在,则这是value为该值
+     *
+     * @param key
+     * @param increment
+     */
+    void incrBy(String key, long increment);
+
+    /**
+     * 通过key 和 field 获取指定的 value
+     *
+     * @param key
+     * @param field
+     */
+    void hget(String key, String field);
+
+    /**
+     * 通过key给指定的field的value加上给定的值
+     *
+     * @param key
+     * @param field
+     * @param increment
+     */
+    void hincrBy(String key, String field, long increment);
+
+    /**
+     * 通过key向zset中添加value,score,如果该value已经存在则根据score更新元素
+     *
+     * @param key
+     * @param scoreMembers member 和 score
+     */
+    void zadd(String key, Map<String, Double> scoreMembers);
+
+    /**
+     * 通过key增加该zset中value的score的值
+     *
+     * @param key
+     * @param score
+     * @param member
+     */
+    void zincrby(String key, double score, String member);
+
+    /**
+     * 通过key删除在zset中指定的value
+     *
+     * @param key
+     * @param members 可以是一个string 也可以是一个string数组
+     */
+    void zrem(String key, String... members);
+
+    /**
+     * 通过key给field设置指定的值,如果key不存在,则先创建
+     *
+     * @param key
+     * @param field
+     * @param value
+     */
+    void hset(String key, String field, String value);
+
+    /**
+     * 通过key 删除指定的 field
+     *
+     * @param key
+     * @param fields 可以是 一个 field 也可以是 一个数组
+     */
+    void hdel(String key, String... fields);
+
+    /**
+     * 通过key向list头部添加字符串
+     *
+     * @param key
+     * @param strs 可以使一个string 也可以使string数组
+     */
+    void lpush(String key, String... strs);
+
+    /**
+     * 通过key从对应的list中删除指定的count个 和 value相同的元素
+     *
+     * @param key
+     * @param count 当count为0时删除全部
+     * @param value
+     */
+    void lrem(String key, long count, String value);
+
+    /**
+     * 向频道发布消息
+     *
+     * @param channel
+     * @param message
+     */
+    void publish(String channel, String message);
+
+    /**
+     * 为给定 key 设置生存时间，当 key 过期时(生存时间为 0 )，它会被自动删除。
+     *
+     * @param key
+     * @param seconds 过期时间，单位：秒
+     */
+    void expire(String key, int seconds);
+
+    /**
+     * 向 HyperLogLog 添加元素
+     *
+     * @param key
+     * @param elements
+     */
+    void pfadd(String key, String... elements);
+
+    /**
+     * 设置 bitmap 指定偏移量上的位
+     *
+     * @param key
+     * @param offset
+     * @param value
+     */
+    void setbit(String key, long offset, boolean value);
+
+    /**
+     * 获取 bitmap 指定偏移量上的位
+     *
+     * @param key
+     * @param offset
+     */
+    void getbit(String key, long offset);
+
+    /**
+     * 向redis存入key和value,如果key已经存在 则覆盖
+     *
+     * @param key
+     * @param value
+     */
+    void set(String key, String value);
+
+    /**
+     * 设置key value并制定这个键值的有效期
+     *
+     * @param key
+     * @param seconds 单位:秒
+     * @param value
+     */
+    void setex(String key, int seconds, String value);
+
+    /**
+     * 删除指定的key,也可以传入一个包含key的数组
+     *
+     * @param keys 一个key 也可以使 string 数组
+     */
+    void del(String... keys);
+
+    /**
+     * 序列化key的值,结果为 byte[],key 不存在为 null
+     *
+     * @param key
+     */
+    void dump(String key);
+
+    /**
+     * 剩余有效期,单位:毫秒,没有有效期返回 -1,key 不存在返回 -2
+     *
+     * @param key
+     */
+    void pttl(String key);
+
+    /**
+     * 用 dump 的结果还原key,key 已存在时报错
+     *
+     * @param key
+     * @param ttl   有效期,单位:毫秒,0 表示不过期
+     * @param value dump 的结果
+     */
+    void restore(String key, long ttl, byte[] value);
+
+    /**
+     * 删除二进制key
+     *
+     * @param keys
+     */
+    void del(byte[]... keys);
+
+    /**
+     * 序列化二进制key的值,结果为 byte[],key 不存在为 null
+     *
+     * @param key
+     */
+    void dump(byte[] key);
+
+    /**
+     * 二进制key的剩余有效期,单位:毫秒,没有有效期返回 -1,key 不存在返回 -2
+     *
+     * @param key
+     */
+    void pttl(byte[] key);
+
+    /**
+     * 用 dump 的结果还原二进制key,key 已存在时报错
+     *
+     * @param key
+     * @param ttl   有效期,单位:毫秒,0 表示不过期
+     * @param value dump 的结果
+     */
+    void restore(byte[] key, long ttl, byte[] value);
+
+}
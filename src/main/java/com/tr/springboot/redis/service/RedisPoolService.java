@@ -1,5 +1,7 @@
 package com.tr.springboot.redis.service;
 
+import redis.clients.jedis.BitOP;
+import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.SortingParams;
 import redis.clients.jedis.Tuple;
 
@@ -10,6 +12,7 @@ import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Redis 连接池接口
@@ -181,6 +184,29 @@ public interface RedisPoolService {
      */
     String setex(int indexdb, String key, String value, int seconds);
 
+    /**
+     * 设置key value并制定这个键值的有效期
+     *
+     * @param key
+     * @param value
+     * @param seconds 单位:秒
+     * @return 成功返回OK 失败和异常返回null
+     */
+    String setex(int indexdb, byte[] key, byte[] value, int seconds);
+
+    /**
+     * 设置key value,可同时指定存在条件和有效期,一次请求原子完成
+     * example: obj.set(0, "lock", "token", "NX", "PX", 30000)
+     *
+     * @param key
+     * @param value
+     * @param nxxx  NX 只在key不存在时设置, XX 只在key存在时设置
+     * @param expx  EX 单位秒, PX 单位毫秒
+     * @param time  有效期
+     * @return 成功返回OK 条件不满足和异常返回null
+     */
+    String set(int indexdb, String key, String value, String nxxx, String expx, long time);
+
     /**
      * 通过key 和offset 从指定的位置开始将原先value替换
      * 下标从0开始,offset表示从offset下标开始替换
@@ -466,6 +492,16 @@ public interface RedisPoolService {
      */
     String rpoplpush(int indexdb, String srckey, String dstkey);
 
+    /**
+     * rpoplpush 的阻塞版本,第一个list为空时阻塞等待,直到有元素或超时
+     *
+     * @param srckey
+     * @param dstkey
+     * @param timeout 最长阻塞时间,单位:秒,0表示一直阻塞
+     * @return 超时返回null
+     */
+    String brpoplpush(int indexdb, String srckey, String dstkey, int timeout);
+
     /**
      * 通过key获取list中指定下标位置的value
      *
@@ -819,6 +855,28 @@ public interface RedisPoolService {
      */
     Set<String> keys(int indexdb, String pattern);
 
+    /**
+     * 增量遍历满足pattern表达式的key,不会像 keys 一样长时间阻塞 redis
+     * example: cursor 从 "0" 开始,返回的 cursor 为 "0" 时遍历结束
+     *
+     * @param cursor  游标
+     * @param pattern
+     * @param count   每次遍历的数量提示
+     * @return 下一次的游标和本次的key 异常返回null
+     */
+    ScanResult<String> scan(int indexdb, String cursor, String pattern, int count);
+
+    /**
+     * 增量遍历满足pattern表达式的key,key 按原始字节返回,不做字符编码转换,适用于二进制 key
+     * example: cursor 从 "0" 开始,返回的 getCursorAsBytes() 为 "0" 时遍历结束
+     *
+     * @param cursor  游标
+     * @param pattern
+     * @param count   每次遍历的数量提示
+     * @return 下一次的游标和本次的key 异常返回null
+     */
+    ScanResult<byte[]> scan(int indexdb, byte[] cursor, byte[] pattern, int count);
+
     /**
      * 通过key判断值得类型
      *
@@ -826,4 +884,144 @@ public interface RedisPoolService {
      * @return
      */
     String type(int indexdb, String key);
+
+    /**
+     * 向 HyperLogLog 添加元素,每个 key 固定占用约 12KB 内存,用于大数据量的基数统计
+     *
+     * @param key
+     * @param elements 可以是一个string 也可以是一个string数组
+     * @return 基数估计值发生变化返回1 否则返回0
+     */
+    Long pfadd(int indexdb, String key, String... elements);
+
+    /**
+     * 返回 HyperLogLog 的基数估计值,多个key时返回并集的基数估计值,标准误差 0.81%
+     *
+     * @param keys 可以是一个string 也可以是一个string数组
+     * @return
+     */
+    Long pfcount(int indexdb, String... keys);
+
+    /**
+     * 将多个 HyperLogLog 合并到 destkey
+     *
+     * @param destkey
+     * @param sourcekeys
+     * @return 成功返回OK
+     */
+    String pfmerge(int indexdb, String destkey, String... sourcekeys);
+
+    /**
+     * 设置 bitmap 指定偏移量上的位,key不存在时自动创建
+     *
+     * @param key
+     * @param offset 偏移量,从0开始
+     * @param value
+     * @return 返回该位原来的值
+     */
+    Boolean setbit(int indexdb, String key, long offset, boolean value);
+
+    /**
+     * 获取 bitmap 指定偏移量上的位
+     *
+     * @param key
+     * @param offset 偏移量,从0开始
+     * @return key不存在或偏移量超出长度返回false
+     */
+    Boolean getbit(int indexdb, String key, long offset);
+
+    /**
+     * 统计 bitmap 中值为1的位的数量
+     *
+     * @param key
+     * @return
+     */
+    Long bitcount(int indexdb, String key);
+
+    /**
+     * 统计 bitmap 指定字节范围内值为1的位的数量
+     *
+     * @param key
+     * @param start 开始字节 负数表示从右边开始
+     * @param end   结束字节 包含
+     * @return
+     */
+    Long bitcount(int indexdb, String key, long start, long end);
+
+    /**
+     * 对多个 bitmap 做位运算,结果存入 destkey,在 redis 服务端完成
+     *
+     * @param op      AND OR XOR NOT
+     * @param destkey
+     * @param srckeys
+     * @return 返回 destkey 的字节长度
+     */
+    Long bitop(int indexdb, BitOP op, String destkey, String... srckeys);
+
+    /**
+     * 执行Lua脚本,脚本在redis中原子执行
+     * 优先使用 EVALSHA 只发送脚本摘要,redis 中没有缓存该脚本时自动回退为 EVAL
+     *
+     * @param script Lua脚本
+     * @param keys   KEYS 参数
+     * @param args   ARGV 参数
+     * @return 脚本返回值, 整数返回Long, 多值返回List, 异常返回null
+     */
+    Object eval(int indexdb, String script, List<String> keys, List<String> args);
+
+    /**
+     * 通过脚本的 SHA1 摘要执行已缓存的Lua脚本
+     *
+     * @param sha1 脚本摘要
+     * @param keys KEYS 参数
+     * @param args ARGV 参数
+     * @return 脚本返回值, 脚本未缓存和异常返回null
+     */
+    Object evalsha(int indexdb, String sha1, List<String> keys, List<String> args);
+
+    /**
+     * 将Lua脚本缓存到redis,不执行
+     *
+     * @param script Lua脚本
+     * @return 返回脚本的 SHA1 摘要
+     */
+    String scriptLoad(int indexdb, String script);
+
+    /**
+     * 向频道发布消息,频道与数据库无关
+     *
+     * @param channel
+     * @param message
+     * @return 接收到消息的订阅者数量
+     */
+    Long publish(int indexdb, String channel, String message);
+
+    /**
+     * 管道批量执行命令,多条命令一次网络往返
+     * example: obj.pipelined(0, p -> { p.incrBy("a", 1); p.incrBy("b", 2); })
+     *
+     * @param commands 需要执行的命令
+     * @return 按命令顺序返回结果, 单条命令出错时对应位置为异常对象, 连接异常返回null
+     */
+    List<Object> pipelined(int indexdb, Consumer<RedisPipeline> commands);
+
+    /**
+     * 事务执行命令,命令在 MULTI 后排队,EXEC 时一次网络往返原子执行
+     * example: obj.transaction(0, tx -> { tx.incrBy("a", 1); tx.expire("a", 60); })
+     *
+     * @param commands 需要执行的命令
+     * @return 按命令顺序返回结果, 单条命令出错时对应位置为异常对象, 连接异常返回null
+     */
+    List<Object> transaction(int indexdb, Consumer<RedisPipeline> commands);
+
+    /**
+     * 乐观锁读-改-写: WATCH key 后读取旧值,计算新值并在事务中写入,期间 key 被其他客户端修改则重试
+     * example: obj.compareAndSet(0, "counter", old -> String.valueOf(old == null ? 1 : Long.parseLong(old) * 2), 3)
+     *
+     * @param key
+     * @param update     根据旧值计算新值, 旧值不存在时参数为null, 返回null表示删除key
+     * @param maxRetries 最大重试次数
+     * @return 写入成功返回true 重试次数用完返回false 异常返回null
+     */
+    Boolean compareAndSet(int indexdb, String key, Function<String, String> update, int maxRetries);
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.tr.springboot.redis.service;
+
+import com.tr.springboot.redis.entity.User;
+
+import java.util.List;
+
+/**
+ * 基于 user 缓存的用户查询
+ */
+public interface UserCacheService {
+
+    /**
+     * 批量查询用户，一次 MGET 查询缓存，未命中的用一次 findAllById 查询数据库，再用一个管道写回缓存
+     * example: obj.findAllById(Arrays.asList(3, 1, 2))
+     *
+     * @param ids 用户 id，可以重复
+     * @return 按 ids 顺序返回，用户不存在的位置为 null
+     */
+    List<User> findAllById(List<Integer> ids);
+
+}
@@ -0,0 +1,161 @@
+package com.tr.springboot.redis.service.impl;
+
+import com.tr.springboot.redis.service.RedisPipeline;
+import redis.clients.jedis.MultiKeyPipelineBase;
+
+import java.util.Map;
+
+/**
+ * 基于 Jedis Pipeline 的管道命令,也用于 Transaction 中排队的事务命令
+ */
+class JedisPipeline implements RedisPipeline {
+
+    private final MultiKeyPipelineBase pipeline;
+
+    JedisPipeline(MultiKeyPipelineBase pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public void get(String key) {
+        pipeline.get(key);
+    }
+
+    @Override
+    public void incrBy(String key, long increment) {
+        pipeline.incrBy(key, increment);
+    }
+
+    @Override
+    public void hget(String key, String field) {
+        pipeline.hget(key, field);
+    }
+
+    @Override
+    public void hincrBy(String key, String field, long increment) {
+        pipeline.hincrBy(key, field, increment);
+    }
+
+    @Override
+    public void zadd(String key, Map<String, Double> scoreMembers) {
+        pipeline.zadd(key, scoreMembers);
+    }
+
+    @Override
+    public void zincrby(String key, double score, String member) {
+        pipeline.zincrby(key, score, member);
+    }
+
+    @Override
+    public void zrem(String key, String... members) {
+        pipeline.zrem(key, members);
+    }
+
+    @Override
+    public void hset(String key, String field, String value) {
+        pipeline.hset(key, field, value);
+    }
+
+    @Override
+    public void hdel(String key, String... fields) {
+        pipeline.hdel(key, fields);
+    }
+
+    @Override
+    public void lpush(String key, String... strs) {
+        pipeline.lpush(key, strs);
+    }
+
+    @Override
+    public void lrem(String key, long count, String value) {
+        pipeline.lrem(key, count, value);
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        pipeline.publish(channel, message);
+    }
+
+    @Override
+    public void expire(String key, int seconds) {
+        pipeline.expire(key, seconds);
+    }
+
+    @Override
+    public void pfadd(String key, String... elements) {
+        pipeline.pfadd(key, elements);
+    }
+
+    @Override
+    public void setbit(String key, long offset, boolean value) {
+        pipeline.setbit(key, offset, value);
+    }
+
+    @Override
+    public void getbit(String key, long offset) {
+        pipeline.getbit(key, offset);
+    }
+
+    @Override
+    public void set(String key, String value) {
+        pipeline.set(key, value);
+    }
+
+    @Override
+    public void setex(String key, int seconds, String value) {
+        pipeline.setex(key, seconds, value);
+    }
+
+    @Override
+    public void del(String... keys) {
+        pipeline.del(keys);
+    }
+
+    @Override
+    public void dump(String key) {
+        pipeline.dump(key);
+    }
+
+    @Override
+    public void pttl(String key) {
+        pipeline.pttl(key);
+    }
+
+    @Override
+    public void restore(String key, long ttl, byte[] value) {
+        // Jedis 的 restore 有效期为 int,超出范围(约 24 天)时先不过期还原再 pexpire,结果中多一条 pexpire 的返回值
+        if (ttl <= Integer.MAX_VALUE) {
+            pipeline.restore(key, (int) ttl, value);
+        } else {
+            pipeline.restore(key, 0, value);
+            pipeline.pexpire(key, ttl);
+        }
+    }
+
+    @Override
+    public void del(byte[]... keys) {
+        pipeline.del(keys);
+    }
+
+    @Override
+    public void dump(byte[] key) {
+        pipeline.dump(key);
+    }
+
+    @Override
+    public void pttl(byte[] key) {
+        pipeline.pttl(key);
+    }
+
+    @Override
+    public void restore(byte[] key, long ttl, byte[] value) {
+        // 同 restore(String, long, byte[])
+        if (ttl <= Integer.MAX_VALUE) {
+            pipeline.restore(key, (int) ttl, value);
+        } else {
+            pipeline.restore(key, 0, value);
+            pipeline.pexpire(key, ttl);
+        }
+    }
+
+}
@@ -1,25 +1,39 @@
 package com.tr.springboot.redis.service.impl;
 
 import com.tr.springboot.redis.service.Function;
+import com.tr.springboot.redis.service.RedisPipeline;
 import com.tr.springboot.redis.service.RedisPoolService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import redis.clients.jedis.BinaryJedis;
+import redis.clients.jedis.BitOP;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Transaction;
 import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * 适用单例模式、主从模式、以及哨兵模式
  */
 @Service("jedisPool")
+@ConditionalOnProperty(value = "spring.redis.jedis.pool.type", havingValue = "jedisPool")
 public class JedisPoolImpl implements RedisPoolService {
 
     private final Logger logger = LoggerFactory.getLogger(JedisPoolImpl.class);
@@ -27,6 +41,11 @@ public class JedisPoolImpl implements RedisPoolService {
     @Autowired
     private JedisPool jedisPool;
 
+    /**
+     * Lua脚本 -> SHA1 摘要
+     */
+    private final Map<String, String> scriptShas = new ConcurrentHashMap<>();
+
     /**
      * 返还到连接池
      *
@@ -38,6 +57,22 @@ public class JedisPoolImpl implements RedisPoolService {
         }
     }
 
+    /**
+     * 计算Lua脚本的 SHA1 摘要,与 redis SCRIPT LOAD 返回值一致
+     */
+    static String sha1(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * JedisPool通用执行方法
      *
@@ -229,6 +264,35 @@ public class JedisPoolImpl implements RedisPoolService {
         return execute(indexdb, j -> j.setex(key, seconds, value));
     }
 
+    /**
+     * 设置 key 和 value 并制定这个键值的有效期
+     *
+     * @param key
+     * @param value
+     * @param seconds 单位:秒
+     * @return 成功返回OK 失败和异常返回null
+     */
+    @Override
+    public String setex(int indexdb, byte[] key, byte[] value, int seconds) {
+        return execute(indexdb, j -> j.setex(key, seconds, value));
+    }
+
+    /**
+     * 设置key value,可同时指定存在条件和有效期,一次请求原子完成
+     * example: obj.set(0, "lock", "token", "NX", "PX", 30000)
+     *
+     * @param key
+     * @param value
+     * @param nxxx  NX 只在key不存在时设置, XX 只在key存在时设置
+     * @param expx  EX 单位秒, PX 单位毫秒
+     * @param time  有效期
+     * @return 成功返回OK 条件不满足和异常返回null
+     */
+    @Override
+    public String set(int indexdb, String key, String value, String nxxx, String expx, long time) {
+        return execute(indexdb, j -> j.set(key, value, nxxx, expx, time));
+    }
+
     /**
      * 通过key 和offset 从指定的位置开始将原先value替换
      * 下标从0开始,offset表示从offset下标开始替换
@@ -579,7 +643,7 @@ public class JedisPoolImpl implements RedisPoolService {
      * @return
      */
     @Override
-    public synchronized String lpop(int indexdb, String key) {
+    public String lpop(int indexdb, String key) {
         return execute(indexdb, j -> j.lpop(key));
     }
 
@@ -590,7 +654,7 @@ public class JedisPoolImpl implements RedisPoolService {
      * @return
      */
     @Override
-    public synchronized String rpop(int indexdb, String key) {
+    public String rpop(int indexdb, String key) {
         return execute(indexdb, j -> j.rpop(key));
     }
 
@@ -607,6 +671,19 @@ public class JedisPoolImpl implements RedisPoolService {
         return execute(indexdb, j -> j.rpoplpush(srckey, dstkey));
     }
 
+    /**
+     * rpoplpush 的阻塞版本,第一个list为空时阻塞等待,直到有元素或超时
+     *
+     * @param srckey
+     * @param dstkey
+     * @param timeout 最长阻塞时间,单位:秒,0表示一直阻塞
+     * @return 超时返回null
+     */
+    @Override
+    public String brpoplpush(int indexdb, String srckey, String dstkey, int timeout) {
+        return execute(indexdb, j -> j.brpoplpush(srckey, dstkey, timeout));
+    }
+
     /**
      * 通过key获取list中指定下标位置的value
      *
@@ -1073,6 +1150,24 @@ public class JedisPoolImpl implements RedisPoolService {
         return execute(indexdb, j -> j.keys(pattern));
     }
 
+    /**
+     * 增量遍历满足pattern表达式的key
+     *
+     * @param cursor  游标
+     * @param pattern
+     * @param count   每次遍历的数量提示
+     * @return
+     */
+    @Override
+    public ScanResult<String> scan(int indexdb, String cursor, String pattern, int count) {
+        return execute(indexdb, j -> j.scan(cursor, new ScanParams().match(pattern).count(count)));
+    }
+
+    @Override
+    public ScanResult<byte[]> scan(int indexdb, byte[] cursor, byte[] pattern, int count) {
+        return execute(indexdb, j -> j.scan(cursor, new ScanParams().match(pattern).count(count)));
+    }
+
     /**
      * 通过key判断值得类型
      *
@@ -1083,4 +1178,225 @@ public class JedisPoolImpl implements RedisPoolService {
     public String type(int indexdb, String key) {
         return execute(indexdb, j -> j.type(key));
     }
+
+    /**
+     * 向 HyperLogLog 添加元素,每个 key 固定占用约 12KB 内存,用于大数据量的基数统计
+     *
+     * @param key
+     * @param elements 可以是一个string 也可以是一个string数组
+     * @return 基数估计值发生变化返回1 否则返回0
+     */
+    @Override
+    public Long pfadd(int indexdb, String key, String... elements) {
+        return execute(indexdb, j -> j.pfadd(key, elements));
+    }
+
+    /**
+     * 返回 HyperLogLog 的基数估计值,多个key时返回并集的基数估计值,标准误差 0.81%
+     *
+     * @param keys 可以是一个string 也可以是一个string数组
+     * @return
+     */
+    @Override
+    public Long pfcount(int indexdb, String... keys) {
+        return execute(indexdb, j -> j.pfcount(keys));
+    }
+
+    /**
+     * 将多个 HyperLogLog 合并到 destkey
+     *
+     * @param destkey
+     * @param sourcekeys
+     * @return 成功返回OK
+     */
+    @Override
+    public String pfmerge(int indexdb, String destkey, String... sourcekeys) {
+        return execute(indexdb, j -> j.pfmerge(destkey, sourcekeys));
+    }
+
+    /**
+     * 设置 bitmap 指定偏移量上的位,key不存在时自动创建
+     *
+     * @param key
+     * @param offset 偏移量,从0开始
+     * @param value
+     * @return 返回该位原来的值
+     */
+    @Override
+    public Boolean setbit(int indexdb, String key, long offset, boolean value) {
+        return execute(indexdb, j -> j.setbit(key, offset, value));
+    }
+
+    /**
+     * 获取 bitmap 指定偏移量上的位
+     *
+     * @param key
+     * @param offset 偏移量,从0开始
+     * @return key不存在或偏移量超出长度返回false
+     */
+    @Override
+    public Boolean getbit(int indexdb, String key, long offset) {
+        return execute(indexdb, j -> j.getbit(key, offset));
+    }
+
+    /**
+     * 统计 bitmap 中值为1的位的数量
+     *
+     * @param key
+     * @return
+     */
+    @Override
+    public Long bitcount(int indexdb, String key) {
+        return execute(indexdb, j -> j.bitcount(key));
+    }
+
+    /**
+     * 统计 bitmap 指定字节范围内值为1的位的数量
+     *
+     * @param key
+     * @param start 开始字节 负数表示从右边开始
+     * @param end   结束字节 包含
+     * @return
+     */
+    @Override
+    public Long bitcount(int indexdb, String key, long start, long end) {
+        return execute(indexdb, j -> j.bitcount(key, start, end));
+    }
+
+    /**
+     * 对多个 bitmap 做位运算,结果存入 destkey,在 redis 服务端完成
+     *
+     * @param op      AND OR XOR NOT
+     * @param destkey
+     * @param srckeys
+     * @return 返回 destkey 的字节长度
+     */
+    @Override
+    public Long bitop(int indexdb, BitOP op, String destkey, String... srckeys) {
+        return execute(indexdb, j -> j.bitop(op, destkey, srckeys));
+    }
+
+    /**
+     * 执行Lua脚本,脚本在redis中原子执行
+     * 优先使用 EVALSHA 只发送脚本摘要,redis 中没有缓存该脚本时自动回退为 EVAL
+     *
+     * @param script Lua脚本
+     * @param keys   KEYS 参数
+     * @param args   ARGV 参数
+     * @return 脚本返回值, 整数返回Long, 多值返回List, 异常返回null
+     */
+    @Override
+    public Object eval(int indexdb, String script, List<String> keys, List<String> args) {
+        String sha1 = scriptShas.computeIfAbsent(script, JedisPoolImpl::sha1);
+        return execute(indexdb, j -> {
+            try {
+                return j.evalsha(sha1, keys, args);
+            } catch (JedisNoScriptException e) {
+                // EVAL 会同时把脚本缓存到 redis
+                return j.eval(script, keys, args);
+            }
+        });
+    }
+
+    /**
+     * 通过脚本的 SHA1 摘要执行已缓存的Lua脚本
+     *
+     * @param sha1 脚本摘要
+     * @param keys KEYS 参数
+     * @param args ARGV 参数
+     * @return 脚本返回值, 脚本未缓存和异常返回null
+     */
+    @Override
+    public Object evalsha(int indexdb, String sha1, List<String> keys, List<String> args) {
+        return execute(indexdb, j -> j.evalsha(sha1, keys, args));
+    }
+
+    /**
+     * 将Lua脚本缓存到redis,不执行
+     *
+     * @param script Lua脚本
+     * @return 返回脚本的 SHA1 摘要
+     */
+    @Override
+    public String scriptLoad(int indexdb, String script) {
+        String sha1 = execute(indexdb, j -> j.scriptLoad(script));
+        if (sha1 != null) {
+            scriptShas.put(script, sha1);
+        }
+        return sha1;
+    }
+
+    /**
+     * 向频道发布消息,频道与数据库无关
+     *
+     * @param channel
+     * @param message
+     * @return 接收到消息的订阅者数量
+     */
+    @Override
+    public Long publish(int indexdb, String channel, String message) {
+        return execute(indexdb, j -> j.publish(channel, message));
+    }
+
+    /**
+     * 管道批量执行命令,多条命令一次网络往返
+     * example: obj.pipelined(0, p -> { p.incrBy("a", 1); p.incrBy("b", 2); })
+     *
+     * @param commands 需要执行的命令
+     * @return 按命令顺序返回结果, 单条命令出错时对应位置为异常对象, 连接异常返回null
+     */
+    @Override
+    public List<Object> pipelined(int indexdb, Consumer<RedisPipeline> commands) {
+        return execute(indexdb, j -> {
+            Pipeline pipeline = j.pipelined();
+            commands.accept(new JedisPipeline(pipeline));
+            return pipeline.syncAndReturnAll();
+        });
+    }
+
+    /**
+     * 事务执行命令,命令在 MULTI 后排队,EXEC 时一次网络往返原子执行
+     * example: obj.transaction(0, tx -> { tx.incrBy("a", 1); tx.expire("a", 60); })
+     *
+     * @param commands 需要执行的命令
+     * @return 按命令顺序返回结果, 单条命令出错时对应位置为异常对象, 连接异常返回null
+     */
+    @Override
+    public List<Object> transaction(int indexdb, Consumer<RedisPipeline> commands) {
+        return execute(indexdb, j -> {
+            Transaction transaction = j.multi();
+            commands.accept(new JedisPipeline(transaction));
+            return transaction.exec();
+        });
+    }
+
+    /**
+     * 乐观锁读-改-写: WATCH key 后读取旧值,计算新值并在事务中写入,期间 key 被其他客户端修改则重试
+     * example: obj.compareAndSet(0, "counter", old -> String.valueOf(old == null ? 1 : Long.parseLong(old) * 2), 3)
+     *
+     * @param key
+     * @param update     根据旧值计算新值, 旧值不存在时参数为null, 返回null表示删除key
+     * @param maxRetries 最大重试次数
+     * @return 写入成功返回true 重试次数用完返回false 异常返回null
+     */
+    @Override
+    public Boolean compareAndSet(int indexdb, String key, Function<String, String> update, int maxRetries) {
+        return execute(indexdb, j -> {
+            for (int i = 0; i <= maxRetries; i++) {
+                j.watch(key);
+                String value = update.callback(j.get(key));
+                Transaction transaction = j.multi();
+                if (value == null) {
+                    transaction.del(key);
+                } else {
+                    transaction.set(key, value);
+                }
+                // 被 WATCH 的 key 在 EXEC 前被修改时事务放弃执行, 返回空结果
+                if (!transaction.exec().isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
 }
\ No newline at end of file
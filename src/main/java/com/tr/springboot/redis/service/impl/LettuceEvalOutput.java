@@ -0,0 +1,67 @@
+package com.tr.springboot.redis.service.impl;
+
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.output.NestedMultiOutput;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Lua脚本返回值,与 Jedis eval 的返回值保持一致: 整数返回 Long, 字符串返回 String, 数组返回 List, nil 返回null
+ */
+class LettuceEvalOutput extends CommandOutput<String, String, Object> {
+
+    private final NestedMultiOutput<String, String> nested = new NestedMultiOutput<>(StringCodec.UTF8);
+
+    /**
+     * 返回值是否为数组
+     */
+    private boolean array;
+
+    LettuceEvalOutput() {
+        super(StringCodec.UTF8, null);
+    }
+
+    @Override
+    public void set(long integer) {
+        nested.set(integer);
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        nested.set(bytes);
+    }
+
+    @Override
+    public void setSingle(ByteBuffer bytes) {
+        nested.setSingle(bytes);
+    }
+
+    @Override
+    public void setError(ByteBuffer error) {
+        super.setError(error);
+        nested.setError(error);
+    }
+
+    @Override
+    public void complete(int depth) {
+        nested.complete(depth);
+    }
+
+    @Override
+    public void multi(int count) {
+        array = true;
+        nested.multi(count);
+    }
+
+    @Override
+    public Object get() {
+        List<Object> values = nested.get();
+        if (array) {
+            return values;
+        }
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.tr.springboot.redis.service.impl;
+
+import com.tr.springboot.redis.service.RedisPipeline;
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.ByteArrayOutput;
+import io.lettuce.core.output.IntegerOutput;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * 基于 Lettuce 异步命令的管道命令,也用于 MULTI 后排队的事务命令
+ * <p>
+ * 返回值转换为与 JedisPipeline 相同的类型,调用方不需要区分实现
+ */
+class LettucePipeline implements RedisPipeline {
+
+    private final RedisAsyncCommands<String, String> async;
+
+    private final List<RedisFuture<?>> futures = new ArrayList<>();
+
+    private final List<Function<Object, Object>> converters = new ArrayList<>();
+
+    LettucePipeline(RedisAsyncCommands<String, String> async) {
+        this.async = async;
+    }
+
+    List<RedisFuture<?>> futures() {
+        return futures;
+    }
+
+    /**
+     * 按命令顺序返回结果, 单条命令出错时对应位置为异常对象
+     */
+    List<Object> results() {
+        List<Object> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            Future<?> future = futures.get(i);
+            try {
+                results.add(converters.get(i).apply(future.get()));
+            } catch (ExecutionException e) {
+                results.add(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisCommandInterruptedException(e);
+            }
+        }
+        return results;
+    }
+
+    private void add(RedisFuture<?> future) {
+        futures.add(future);
+        converters.add(Function.identity());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void add(RedisFuture<T> future, Function<T, Object> converter) {
+        futures.add(future);
+        converters.add((Function<Object, Object>) converter);
+    }
+
+    private static Object toLong(Boolean value) {
+        return value == null ? null : value ? 1L : 0L;
+    }
+
+    private static Object toBoolean(Long value) {
+        return value == null ? null : value == 1L;
+    }
+
+    @Override
+    public void get(String key) {
+        add(async.get(key));
+    }
+
+    @Override
+    public void incrBy(String key, long increment) {
+        add(async.incrby(key, increment));
+    }
+
+    @Override
+    public void hget(String key, String field) {
+        add(async.hget(key, field));
+    }
+
+    @Override
+    public void hincrBy(String key, String field, long increment) {
+        add(async.hincrby(key, field, increment));
+    }
+
+    @Override
+    public void zadd(String key, Map<String, Double> scoreMembers) {
+        // 按 score、member 交替排列，避免创建泛型数组 ScoredValue<String>[]
+        Object[] scoresAndValues = new Object[scoreMembers.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, Double> entry : scoreMembers.entrySet()) {
+            scoresAndValues[i++] = entry.getValue();
+            scoresAndValues[i++] = entry.getKey();
+        }
+        add(async.zadd(key, scoresAndValues));
+    }
+
+    @Override
+    public void zincrby(String key, double score, String member) {
+        add(async.zincrby(key, score, member));
+    }
+
+    @Override
+    public void zrem(String key, String... members) {
+        add(async.zrem(key, members));
+    }
+
+    @Override
+    public void hset(String key, String field, String value) {
+        add(async.hset(key, field, value), LettucePipeline::toLong);
+    }
+
+    @Override
+    public void hdel(String key, String... fields) {
+        add(async.hdel(key, fields));
+    }
+
+    @Override
+    public void lpush(String key, String... strs) {
+        add(async.lpush(key, strs));
+    }
+
+    @Override
+    public void lrem(String key, long count, String value) {
+        add(async.lrem(key, count, value));
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        add(async.publish(channel, message));
+    }
+
+    @Override
+    public void expire(String key, int seconds) {
+        add(async.expire(key, seconds), LettucePipeline::toLong);
+    }
+
+    @Override
+    public void pfadd(String key, String... elements) {
+        add(async.pfadd(key, elements));
+    }
+
+    @Override
+    public void setbit(String key, long offset, boolean value) {
+        add(async.setbit(key, offset, value ? 1 : 0), LettucePipeline::toBoolean);
+    }
+
+    @Override
+    public void getbit(String key, long offset) {
+        add(async.getbit(key, offset), LettucePipeline::toBoolean);
+    }
+
+    @Override
+    public void set(String key, String value) {
+        add(async.set(key, value));
+    }
+
+    @Override
+    public void setex(String key, int seconds, String value) {
+        add(async.setex(key, seconds, value));
+    }
+
+    @Override
+    public void del(String... keys) {
+        add(async.del(keys));
+    }
+
+    @Override
+    public void dump(String key) {
+        add(async.dump(key));
+    }
+
+    @Override
+    public void pttl(String key) {
+        add(async.pttl(key));
+    }
+
+    @Override
+    public void restore(String key, long ttl, byte[] value) {
+        add(async.restore(key, ttl, value));
+    }
+
+    /**
+     * 二进制 key 的命令直接按原始字节发送,不经过 String 编解码
+     */
+    @Override
+    public void del(byte[]... keys) {
+        CommandArgs<String, String> args = new CommandArgs<>(StringCodec.UTF8);
+        for (byte[] key : keys) {
+            args.add(key);
+        }
+        add(async.dispatch(CommandType.DEL, new IntegerOutput<>(StringCodec.UTF8), args));
+    }
+
+    @Override
+    public void dump(byte[] key) {
+        add(async.dispatch(CommandType.DUMP, new ByteArrayOutput<>(StringCodec.UTF8), new CommandArgs<>(StringCodec.UTF8).add(key)));
+    }
+
+    @Override
+    public void pttl(byte[] key) {
+        add(async.dispatch(CommandType.PTTL, new IntegerOutput<>(StringCodec.UTF8), new CommandArgs<>(StringCodec.UTF8).add(key)));
+    }
+
+    @Override
+    public void restore(byte[] key, long ttl, byte[] value) {
+        add(async.dispatch(CommandType.RESTORE, new StatusOutput<>(StringCodec.UTF8),
+                new CommandArgs<>(StringCodec.UTF8).add(key).add(ttl).add(value)));
+    }
+
+}
@@ -0,0 +1,773 @@
+package com.tr.springboot.redis.service.impl;
+
+import com.tr.springboot.redis.config.RedisConnections;
+import com.tr.springboot.redis.service.Function;
+import com.tr.springboot.redis.service.RedisPipeline;
+import com.tr.springboot.redis.service.RedisPoolService;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.TransactionResult;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.ValueListOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.BitOP;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Lettuce 的实现,spring.redis.jedis.pool.type 为 lettuce 或未配置时启用(默认)
+ * <p>
+ * 普通命令共享每个数据库一条的多路复用连接,多个线程的命令不等待前一条命令的回复直接发送,
+ * 少量 TCP 连接即可支撑大量并发线程,适合命令耗时短、并发线程多的场景。
+ * 事务、管道、WATCH、阻塞命令会改变或占用连接状态,从独占连接池借用连接执行,与 JedisPoolImpl 相同。
+ * 连接由 RedisConnections 统一管理,与 StringRedisTemplate、响应式接口共用同一个客户端。
+ * 返回值类型与 JedisPoolImpl 保持一致,调用方不需要区分实现。
+ */
+@Service("lettucePool")
+@ConditionalOnProperty(value = "spring.redis.jedis.pool.type", havingValue = "lettuce", matchIfMissing = true)
+public class LettucePoolImpl implements RedisPoolService {
+
+    private final Logger logger = LoggerFactory.getLogger(LettucePoolImpl.class);
+
+    @Autowired
+    private RedisConnections redisConnections;
+
+    /**
+     * Lua脚本 -> SHA1 摘要
+     */
+    private final Map<String, String> scriptShas = new ConcurrentHashMap<>();
+
+    /**
+     * 多路复用连接通用执行方法
+     *
+     * @param fun     需要执行的方法
+     * @param indexdb 数据库索引，默认0-15
+     * @param <T>     返回结果类型
+     * @return 返回结果 异常返回null
+     */
+    private <T> T execute(int indexdb, Function<RedisCommands<String, String>, T> fun) {
+        try {
+            return fun.callback(redisConnections.shared(indexdb).sync());
+        } catch (Exception e) {
+            logger.error("redis error", e);
+        }
+        return null;
+    }
+
+    private <T> T executeBinary(int indexdb, Function<RedisCommands<byte[], byte[]>, T> fun) {
+        try {
+            return fun.callback(redisConnections.sharedBinary(indexdb).sync());
+        } catch (Exception e) {
+            logger.error("redis error", e);
+        }
+        return null;
+    }
+
+    /**
+     * 独占连接通用执行方法,成功时恢复连接状态后归还连接池;
+     * 执行失败时连接上可能还有缓冲未发送的命令、未结束的 MULTI 或 WATCH,直接销毁连接,不归还连接池
+     */
+    private <T> T executeDedicated(int indexdb, Function<StatefulRedisConnection<String, String>, T> fun) {
+        StatefulRedisConnection<String, String> connection;
+        try {
+            connection = redisConnections.borrow();
+        } catch (Exception e) {
+            logger.error("redis error", e);
+            return null;
+        }
+        try {
+            connection.sync().select(indexdb);
+            T result = fun.callback(connection);
+            connection.setAutoFlushCommands(true);
+            connection.setTimeout(redisConnections.timeout());
+            redisConnections.release(connection);
+            return result;
+        } catch (Exception e) {
+            logger.error("redis error", e);
+            redisConnections.invalidate(connection);
+        }
+        return null;
+    }
+
+    private static Long toLong(Boolean value) {
+        return value == null ? null : value ? 1L : 0L;
+    }
+
+    private static Map<String, String> toMap(String... keysvalues) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysvalues.length; i += 2) {
+            map.put(keysvalues[i], keysvalues[i + 1]);
+        }
+        return map;
+    }
+
+    private static List<String> values(List<KeyValue<String, String>> keyValues) {
+        List<String> values = new ArrayList<>(keyValues.size());
+        keyValues.forEach(kv -> values.add(kv.getValueOrElse(null)));
+        return values;
+    }
+
+    @Override
+    public String get(int indexdb, String key) {
+        return execute(indexdb, c -> c.get(key));
+    }
+
+    @Override
+    public byte[] get(int indexdb, byte[] key) {
+        return executeBinary(indexdb, c -> c.get(key));
+    }
+
+    @Override
+    public String set(int indexdb, String key, String value) {
+        return execute(indexdb, c -> c.set(key, value));
+    }
+
+    @Override
+    public String set(int indexdb, byte[] key, byte[] value) {
+        return executeBinary(indexdb, c -> c.set(key, value));
+    }
+
+    @Override
+    public Long del(int indexdb, String... keys) {
+        return execute(indexdb, c -> c.del(keys));
+    }
+
+    @Override
+    public Long del(int indexdb, byte[]... keys) {
+        return executeBinary(indexdb, c -> c.del(keys));
+    }
+
+    @Override
+    public Long append(int indexdb, String key, String str) {
+        return execute(indexdb, c -> c.append(key, str));
+    }
+
+    @Override
+    public Boolean exists(int indexdb, String key) {
+        return execute(indexdb, c -> c.exists(key) > 0);
+    }
+
+    @Override
+    public String flushDB(int indexdb) {
+        return execute(indexdb, RedisCommands::flushdb);
+    }
+
+    @Override
+    public Long expire(int indexdb, String key, int value) {
+        return execute(indexdb, c -> toLong(c.expire(key, value)));
+    }
+
+    @Override
+    public Long ttl(int indexdb, String key) {
+        return execute(indexdb, c -> c.ttl(key));
+    }
+
+    @Override
+    public Long persist(int indexdb, String key) {
+        return execute(indexdb, c -> toLong(c.persist(key)));
+    }
+
+    @Override
+    public Long setnx(int indexdb, String key, String value) {
+        return execute(indexdb, c -> toLong(c.setnx(key, value)));
+    }
+
+    @Override
+    public String setex(int indexdb, String key, String value, int seconds) {
+        return execute(indexdb, c -> c.setex(key, seconds, value));
+    }
+
+    @Override
+    public String setex(int indexdb, byte[] key, byte[] value, int seconds) {
+        return executeBinary(indexdb, c -> c.setex(key, seconds, value));
+    }
+
+    @Override
+    public String set(int indexdb, String key, String value, String nxxx, String expx, long time) {
+        SetArgs args = new SetArgs();
+        if ("NX".equalsIgnoreCase(nxxx)) {
+            args.nx();
+        } else if ("XX".equalsIgnoreCase(nxxx)) {
+            args.xx();
+        }
+        if ("EX".equalsIgnoreCase(expx)) {
+            args.ex(time);
+        } else if ("PX".equalsIgnoreCase(expx)) {
+            args.px(time);
+        }
+        return execute(indexdb, c -> c.set(key, value, args));
+    }
+
+    @Override
+    public Long setrange(int indexdb, String key, String str, int offset) {
+        return execute(indexdb, c -> c.setrange(key, offset, str));
+    }
+
+    @Override
+    public List<String> mget(int indexdb, String... keys) {
+        return execute(indexdb, c -> values(c.mget(keys)));
+    }
+
+    @Override
+    public String mset(int indexdb, String... keysvalues) {
+        return execute(indexdb, c -> c.mset(toMap(keysvalues)));
+    }
+
+    @Override
+    public Long msetnx(int indexdb, String... keysvalues) {
+        return execute(indexdb, c -> toLong(c.msetnx(toMap(keysvalues))));
+    }
+
+    @Override
+    public String getset(int indexdb, String key, String value) {
+        return execute(indexdb, c -> c.getset(key, value));
+    }
+
+    @Override
+    public String getrange(int indexdb, String key, int startOffset, int endOffset) {
+        return execute(indexdb, c -> c.getrange(key, startOffset, endOffset));
+    }
+
+    @Override
+    public Long incr(int indexdb, String key) {
+        return execute(indexdb, c -> c.incr(key));
+    }
+
+    @Override
+    public Long incrBy(int indexdb, String key, Long integer) {
+        return execute(indexdb, c -> c.incrby(key, integer));
+    }
+
+    @Override
+    public Long decr(int indexdb, String key) {
+        return execute(indexdb, c -> c.decr(key));
+    }
+
+    @Override
+    public Long decrBy(int indexdb, String key, Long integer) {
+        return execute(indexdb, c -> c.decrby(key, integer));
+    }
+
+    @Override
+    public Long serlen(int indexdb, String key) {
+        return execute(indexdb, c -> c.strlen(key));
+    }
+
+    @Override
+    public Long hset(int indexdb, String key, String field, String value) {
+        return execute(indexdb, c -> toLong(c.hset(key, field, value)));
+    }
+
+    @Override
+    public Long hsetnx(int indexdb, String key, String field, String value) {
+        return execute(indexdb, c -> toLong(c.hsetnx(key, field, value)));
+    }
+
+    @Override
+    public String hmset(int indexdb, String key, Map<String, String> hash) {
+        return execute(indexdb, c -> c.hmset(key, hash));
+    }
+
+    @Override
+    public String hget(int indexdb, String key, String field) {
+        return execute(indexdb, c -> c.hget(key, field));
+    }
+
+    @Override
+    public List<String> hmget(int indexdb, String key, String... fields) {
+        return execute(indexdb, c -> values(c.hmget(key, fields)));
+    }
+
+    @Override
+    public Long hincrby(int indexdb, String key, String field, Long value) {
+        return execute(indexdb, c -> c.hincrby(key, field, value));
+    }
+
+    @Override
+    public Boolean hexists(int indexdb, String key, String field) {
+        return execute(indexdb, c -> c.hexists(key, field));
+    }
+
+    @Override
+    public Long hlen(int indexdb, String key) {
+        return execute(indexdb, c -> c.hlen(key));
+    }
+
+    @Override
+    public Long hdel(int indexdb, String key, String... fields) {
+        return execute(indexdb, c -> c.hdel(key, fields));
+    }
+
+    @Override
+    public Set<String> hkeys(int indexdb, String key) {
+        return execute(indexdb, c -> new HashSet<>(c.hkeys(key)));
+    }
+
+    @Override
+    public List<String> hvals(int indexdb, String key) {
+        return execute(indexdb, c -> c.hvals(key));
+    }
+
+    @Override
+    public Map<String, String> hgetall(int indexdb, String key) {
+        return execute(indexdb, c -> c.hgetall(key));
+    }
+
+    @Override
+    public Long lpush(int indexdb, String key, String... strs) {
+        return execute(indexdb, c -> c.lpush(key, strs));
+    }
+
+    @Override
+    public Long rpush(int indexdb, String key, String... strs) {
+        return execute(indexdb, c -> c.rpush(key, strs));
+    }
+
+    @Override
+    public String lset(int indexdb, String key, Long index, String value) {
+        return execute(indexdb, c -> c.lset(key, index, value));
+    }
+
+    @Override
+    public Long lrem(int indexdb, String key, long count, String value) {
+        return execute(indexdb, c -> c.lrem(key, count, value));
+    }
+
+    @Override
+    public String ltrim(int indexdb, String key, long start, long end) {
+        return execute(indexdb, c -> c.ltrim(key, start, end));
+    }
+
+    @Override
+    public String lpop(int indexdb, String key) {
+        return execute(indexdb, c -> c.lpop(key));
+    }
+
+    @Override
+    public String rpop(int indexdb, String key) {
+        return execute(indexdb, c -> c.rpop(key));
+    }
+
+    @Override
+    public String rpoplpush(int indexdb, String srckey, String dstkey) {
+        return execute(indexdb, c -> c.rpoplpush(srckey, dstkey));
+    }
+
+    /**
+     * 阻塞命令会占住连接,使用独占连接,命令超时时间放宽为阻塞时间加连接超时时间
+     */
+    @Override
+    public String brpoplpush(int indexdb, String srckey, String dstkey, int timeout) {
+        // timeout 为 0 时一直阻塞,命令超时时间取一天
+        Duration blocking = timeout > 0 ? Duration.ofSeconds(timeout).plus(redisConnections.timeout()) : Duration.ofDays(1);
+        return executeDedicated(indexdb, c -> {
+            c.setTimeout(blocking);
+            return c.sync().brpoplpush(timeout, srckey, dstkey);
+        });
+    }
+
+    @Override
+    public String lindex(int indexdb, String key, long index) {
+        return execute(indexdb, c -> c.lindex(key, index));
+    }
+
+    @Override
+    public Long llen(int indexdb, String key) {
+        return execute(indexdb, c -> c.llen(key));
+    }
+
+    @Override
+    public List<String> lrange(int indexdb, String key, long start, long end) {
+        return execute(indexdb, c -> c.lrange(key, start, end));
+    }
+
+    @Override
+    public String lset(int indexdb, String key, long index, String value) {
+        return execute(indexdb, c -> c.lset(key, index, value));
+    }
+
+    /**
+     * SortingParams 按原样拼接到 SORT 命令后面
+     */
+    @Override
+    public List<String> sort(int indexdb, String key, SortingParams sortingParameters) {
+        CommandArgs<String, String> args = new CommandArgs<>(StringCodec.UTF8).addKey(key);
+        Collection<byte[]> params = sortingParameters.getParams();
+        params.forEach(args::add);
+        return execute(indexdb, c -> c.dispatch(CommandType.SORT, new ValueListOutput<>(StringCodec.UTF8), args));
+    }
+
+    @Override
+    public List<String> sort(int indexdb, String key) {
+        return execute(indexdb, c -> c.sort(key));
+    }
+
+    @Override
+    public Long sadd(int indexdb, String key, String... members) {
+        return execute(indexdb, c -> c.sadd(key, members));
+    }
+
+    @Override
+    public Long srem(int indexdb, String key, String... members) {
+        return execute(indexdb, c -> c.srem(key, members));
+    }
+
+    @Override
+    public String spop(int indexdb, String key) {
+        return execute(indexdb, c -> c.spop(key));
+    }
+
+    @Override
+    public Set<String> sdiff(int indexdb, String... keys) {
+        return execute(indexdb, c -> c.sdiff(keys));
+    }
+
+    @Override
+    public Long sdiffstore(int indexdb, String dstkey, String... keys) {
+        return execute(indexdb, c -> c.sdiffstore(dstkey, keys));
+    }
+
+    @Override
+    public Set<String> sinter(int indexdb, String... keys) {
+        return execute(indexdb, c -> c.sinter(keys));
+    }
+
+    @Override
+    public Long sinterstore(int indexdb, String dstkey, String... keys) {
+        return execute(indexdb, c -> c.sinterstore(dstkey, keys));
+    }
+
+    @Override
+    public Set<String> sunion(int indexdb, String... keys) {
+        return execute(indexdb, c -> c.sunion(keys));
+    }
+
+    @Override
+    public Long sunionstore(int indexdb, String dstkey, String... keys) {
+        return execute(indexdb, c -> c.sunionstore(dstkey, keys));
+    }
+
+    @Override
+    public Long smove(int indexdb, String srckey, String dstkey, String member) {
+        return execute(indexdb, c -> toLong(c.smove(srckey, dstkey, member)));
+    }
+
+    @Override
+    public Long scard(int indexdb, String key) {
+        return execute(indexdb, c -> c.scard(key));
+    }
+
+    @Override
+    public Boolean sismember(int indexdb, String key, String member) {
+        return execute(indexdb, c -> c.sismember(key, member));
+    }
+
+    @Override
+    public String srandmember(int indexdb, String key) {
+        return execute(indexdb, c -> c.srandmember(key));
+    }
+
+    @Override
+    public Set<String> smembers(int indexdb, String key) {
+        return execute(indexdb, c -> c.smembers(key));
+    }
+
+    @Override
+    public Long zadd(int indexdb, String key, double score, String member) {
+        return execute(indexdb, c -> c.zadd(key, score, member));
+    }
+
+    @Override
+    public Set<String> zrange(int indexdb, String key, long min, long max) {
+        return execute(indexdb, c -> new LinkedHashSet<>(c.zrange(key, min, max)));
+    }
+
+    @Override
+    public Long zcount(int indexdb, String key, double min, double max) {
+        return execute(indexdb, c -> c.zcount(key, Range.create(min, max)));
+    }
+
+    @Override
+    public Long hincrBy(int indexdb, String key, String value, long increment) {
+        return execute(indexdb, c -> c.hincrby(key, value, increment));
+    }
+
+    @Override
+    public Long zrem(int indexdb, String key, String... members) {
+        return execute(indexdb, c -> c.zrem(key, members));
+    }
+
+    @Override
+    public Double zincrby(int indexdb, String key, double score, String member) {
+        return execute(indexdb, c -> c.zincrby(key, score, member));
+    }
+
+    @Override
+    public Long zrank(int indexdb, String key, String member) {
+        return execute(indexdb, c -> c.zrank(key, member));
+    }
+
+    @Override
+    public Long zrevrank(int indexdb, String key, String member) {
+        return execute(indexdb, c -> c.zrevrank(key, member));
+    }
+
+    @Override
+    public Set<String> zrevrange(int indexdb, String key, long start, long end) {
+        return execute(indexdb, c -> new LinkedHashSet<>(c.zrevrange(key, start, end)));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeWithScores(int indexdb, String key, long start, long end) {
+        return execute(indexdb, c -> {
+            Set<Tuple> tuples = new LinkedHashSet<>();
+            c.zrevrangeWithScores(key, start, end).forEach(sv -> tuples.add(new Tuple(sv.getValue(), sv.getScore())));
+            return tuples;
+        });
+    }
+
+    /**
+     * 支持 (1、-inf、+inf 等字符串形式的区间
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public Set<String> zrangebyscore(int indexdb, String key, String max, String min) {
+        return execute(indexdb, c -> new LinkedHashSet<>(c.zrevrangebyscore(key, max, min)));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(int indexdb, String key, double max, double min) {
+        return execute(indexdb, c -> new LinkedHashSet<>(c.zrevrangebyscore(key, Range.create(min, max))));
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Long zcount(int indexdb, String key, String min, String max) {
+        return execute(indexdb, c -> c.zcount(key, min, max));
+    }
+
+    @Override
+    public Long zcard(int indexdb, String key) {
+        return execute(indexdb, c -> c.zcard(key));
+    }
+
+    @Override
+    public Double zscore(int indexdb, String key, String member) {
+        return execute(indexdb, c -> c.zscore(key, member));
+    }
+
+    @Override
+    public Long zremrangeByRank(int indexdb, String key, long start, long end) {
+        return execute(indexdb, c -> c.zremrangebyrank(key, start, end));
+    }
+
+    @Override
+    public Long zremrangeByScore(int indexdb, String key, double start, double end) {
+        return execute(indexdb, c -> c.zremrangebyscore(key, Range.create(start, end)));
+    }
+
+    @Override
+    public Set<String> keys(int indexdb, String pattern) {
+        return execute(indexdb, c -> new HashSet<>(c.keys(pattern)));
+    }
+
+    @Override
+    public ScanResult<String> scan(int indexdb, String cursor, String pattern, int count) {
+        return execute(indexdb, c -> {
+            KeyScanCursor<String> result = c.scan(ScanCursor.of(cursor), ScanArgs.Builder.matches(pattern).limit(count));
+            return new ScanResult<>(result.isFinished() ? "0" : result.getCursor(), result.getKeys());
+        });
+    }
+
+    @Override
+    public ScanResult<byte[]> scan(int indexdb, byte[] cursor, byte[] pattern, int count) {
+        // 游标是十进制数字,按字符串处理;ISO-8859-1 与字节一一对应,二进制 pattern 原样发送
+        return executeBinary(indexdb, c -> {
+            ScanArgs args = new ScanArgs().match(new String(pattern, StandardCharsets.ISO_8859_1), StandardCharsets.ISO_8859_1).limit(count);
+            KeyScanCursor<byte[]> result = c.scan(ScanCursor.of(new String(cursor, StandardCharsets.US_ASCII)), args);
+            String next = result.isFinished() ? "0" : result.getCursor();
+            return new ScanResult<>(next.getBytes(StandardCharsets.US_ASCII), result.getKeys());
+        });
+    }
+
+    @Override
+    public String type(int indexdb, String key) {
+        return execute(indexdb, c -> c.type(key));
+    }
+
+    @Override
+    public Long pfadd(int indexdb, String key, String... elements) {
+        return execute(indexdb, c -> c.pfadd(key, elements));
+    }
+
+    @Override
+    public Long pfcount(int indexdb, String... keys) {
+        return execute(indexdb, c -> c.pfcount(keys));
+    }
+
+    @Override
+    public String pfmerge(int indexdb, String destkey, String... sourcekeys) {
+        return execute(indexdb, c -> c.pfmerge(destkey, sourcekeys));
+    }
+
+    @Override
+    public Boolean setbit(int indexdb, String key, long offset, boolean value) {
+        return execute(indexdb, c -> c.setbit(key, offset, value ? 1 : 0) == 1L);
+    }
+
+    @Override
+    public Boolean getbit(int indexdb, String key, long offset) {
+        return execute(indexdb, c -> c.getbit(key, offset) == 1L);
+    }
+
+    @Override
+    public Long bitcount(int indexdb, String key) {
+        return execute(indexdb, c -> c.bitcount(key));
+    }
+
+    @Override
+    public Long bitcount(int indexdb, String key, long start, long end) {
+        return execute(indexdb, c -> c.bitcount(key, start, end));
+    }
+
+    @Override
+    public Long bitop(int indexdb, BitOP op, String destkey, String... srckeys) {
+        return execute(indexdb, c -> {
+            switch (op) {
+                case AND:
+                    return c.bitopAnd(destkey, srckeys);
+                case OR:
+                    return c.bitopOr(destkey, srckeys);
+                case XOR:
+                    return c.bitopXor(destkey, srckeys);
+                default:
+                    return c.bitopNot(destkey, srckeys[0]);
+            }
+        });
+    }
+
+    @Override
+    public Object eval(int indexdb, String script, List<String> keys, List<String> args) {
+        String sha1 = scriptShas.computeIfAbsent(script, JedisPoolImpl::sha1);
+        return execute(indexdb, c -> {
+            try {
+                return c.dispatch(CommandType.EVALSHA, new LettuceEvalOutput(), scriptArgs(sha1, keys, args));
+            } catch (RedisNoScriptException e) {
+                // EVAL 会同时把脚本缓存到 redis
+                return c.dispatch(CommandType.EVAL, new LettuceEvalOutput(), scriptArgs(script, keys, args));
+            }
+        });
+    }
+
+    @Override
+    public Object evalsha(int indexdb, String sha1, List<String> keys, List<String> args) {
+        return execute(indexdb, c -> c.dispatch(CommandType.EVALSHA, new LettuceEvalOutput(), scriptArgs(sha1, keys, args)));
+    }
+
+    private static CommandArgs<String, String> scriptArgs(String script, List<String> keys, List<String> args) {
+        return new CommandArgs<>(StringCodec.UTF8).add(script).add(keys.size()).addKeys(keys).addValues(args);
+    }
+
+    @Override
+    public String scriptLoad(int indexdb, String script) {
+        String sha1 = execute(indexdb, c -> c.scriptLoad(script));
+        if (sha1 != null) {
+            scriptShas.put(script, sha1);
+        }
+        return sha1;
+    }
+
+    @Override
+    public Long publish(int indexdb, String channel, String message) {
+        return execute(indexdb, c -> c.publish(channel, message));
+    }
+
+    /**
+     * 独占连接关闭自动刷新,命令全部写入后一次发送
+     */
+    @Override
+    public List<Object> pipelined(int indexdb, Consumer<RedisPipeline> commands) {
+        return executeDedicated(indexdb, c -> {
+            LettucePipeline pipeline = new LettucePipeline(c.async());
+            c.setAutoFlushCommands(false);
+            commands.accept(pipeline);
+            c.flushCommands();
+            if (!LettuceFutures.awaitAll(c.getTimeout(), pipeline.futures().toArray(new Future<?>[0]))) {
+                throw new RedisCommandTimeoutException("pipeline timeout");
+            }
+            return pipeline.results();
+        });
+    }
+
+    @Override
+    public List<Object> transaction(int indexdb, Consumer<RedisPipeline> commands) {
+        return executeDedicated(indexdb, c -> {
+            LettucePipeline pipeline = new LettucePipeline(c.async());
+            c.sync().multi();
+            commands.accept(pipeline);
+            c.sync().exec();
+            return pipeline.results();
+        });
+    }
+
+    @Override
+    public Boolean compareAndSet(int indexdb, String key, Function<String, String> update, int maxRetries) {
+        return executeDedicated(indexdb, c -> {
+            RedisCommands<String, String> sync = c.sync();
+            for (int i = 0; i <= maxRetries; i++) {
+                sync.watch(key);
+                String value;
+                try {
+                    value = update.callback(sync.get(key));
+                } catch (RuntimeException e) {
+                    sync.unwatch();
+                    throw e;
+                }
+                sync.multi();
+                if (value == null) {
+                    c.async().del(key);
+                } else {
+                    c.async().set(key, value);
+                }
+                // 被 WATCH 的 key 在 EXEC 前被修改时事务放弃执行
+                TransactionResult result = sync.exec();
+                if (!result.wasDiscarded()) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+}
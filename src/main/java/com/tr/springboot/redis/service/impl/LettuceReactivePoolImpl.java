@@ -0,0 +1,177 @@
+package com.tr.springboot.redis.service.impl;
+
+import com.tr.springboot.redis.config.RedisConnections;
+import com.tr.springboot.redis.service.ReactiveRedisPoolService;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanStream;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 基于 Lettuce 响应式 API 的实现
+ * <p>
+ * 每个数据库一条长连接（由 RedisConnections 管理），所有请求在这条连接上多路复用，命令和回复都在 Lettuce 的 I/O 线程中异步处理，
+ * 不占用调用方线程，少量线程即可支撑大量并发请求。
+ * 共享连接上不能执行 SELECT、MULTI、BLPOP 等改变连接状态或阻塞连接的命令。
+ */
+@Service("lettuceReactive")
+@ConditionalOnProperty(value = "redis.reactive.enabled", havingValue = "true")
+public class LettuceReactivePoolImpl implements ReactiveRedisPoolService {
+
+    private final Logger logger = LoggerFactory.getLogger(LettuceReactivePoolImpl.class);
+
+    /**
+     * SCAN 每批返回的 key 数量
+     */
+    private static final long SCAN_COUNT = 1000;
+
+    @Autowired
+    private RedisConnections redisConnections;
+
+    /**
+     * Lua脚本 -> SHA1 摘要
+     */
+    private final Map<String, String> scriptShas = new ConcurrentHashMap<>();
+
+    /**
+     * 与 RedisPoolService 共用多路复用连接，默认数据库的连接在启动时已建立，其他数据库首次使用时连接
+     */
+    private RedisReactiveCommands<String, String> commands(int indexdb) {
+        return redisConnections.shared(indexdb).reactive();
+    }
+
+    /**
+     * 通用执行方法，异常记录日志后返回空
+     */
+    private <T> Mono<T> execute(int indexdb, Function<RedisReactiveCommands<String, String>, Mono<T>> fun) {
+        return Mono.defer(() -> fun.apply(commands(indexdb)))
+                .onErrorResume(e -> {
+                    logger.error("redis error", e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 二进制 key、value 的通用执行方法，使用二进制多路复用连接
+     */
+    private <T> Mono<T> executeBinary(int indexdb, Function<RedisReactiveCommands<byte[], byte[]>, Mono<T>> fun) {
+        return Mono.defer(() -> fun.apply(redisConnections.sharedBinary(indexdb).reactive()))
+                .onErrorResume(e -> {
+                    logger.error("redis error", e);
+                    return Mono.empty();
+                });
+    }
+
+    private <T> Flux<T> executeMany(int indexdb, Function<RedisReactiveCommands<String, String>, Flux<T>> fun) {
+        return Flux.defer(() -> fun.apply(commands(indexdb)))
+                .onErrorResume(e -> {
+                    logger.error("redis error", e);
+                    return Flux.empty();
+                });
+    }
+
+    @Override
+    public Mono<String> get(int indexdb, String key) {
+        return execute(indexdb, c -> c.get(key));
+    }
+
+    @Override
+    public Mono<byte[]> get(int indexdb, byte[] key) {
+        return executeBinary(indexdb, c -> c.get(key));
+    }
+
+    @Override
+    public Mono<String> set(int indexdb, String key, String value) {
+        return execute(indexdb, c -> c.set(key, value));
+    }
+
+    @Override
+    public Mono<String> setex(int indexdb, String key, String value, int seconds) {
+        return execute(indexdb, c -> c.setex(key, seconds, value));
+    }
+
+    @Override
+    public Mono<Long> del(int indexdb, String... keys) {
+        return execute(indexdb, c -> c.del(keys));
+    }
+
+    @Override
+    public Mono<Boolean> exists(int indexdb, String key) {
+        return execute(indexdb, c -> c.exists(key).map(n -> n > 0));
+    }
+
+    @Override
+    public Mono<Boolean> expire(int indexdb, String key, int seconds) {
+        return execute(indexdb, c -> c.expire(key, seconds));
+    }
+
+    @Override
+    public Mono<Long> incrBy(int indexdb, String key, long integer) {
+        return execute(indexdb, c -> c.incrby(key, integer));
+    }
+
+    @Override
+    public Mono<List<String>> mget(int indexdb, String... keys) {
+        if (keys.length == 0) {
+            return Mono.just(new ArrayList<>());
+        }
+        return execute(indexdb, c -> c.mget(keys)
+                .collect(() -> new ArrayList<>(keys.length), (List<String> values, KeyValue<String, String> kv) -> values.add(kv.getValueOrElse(null))));
+    }
+
+    @Override
+    public Flux<String> scan(int indexdb, String pattern) {
+        return executeMany(indexdb, c -> ScanStream.scan(c, ScanArgs.Builder.matches(pattern).limit(SCAN_COUNT)));
+    }
+
+    @Override
+    public Mono<String> hget(int indexdb, String key, String field) {
+        return execute(indexdb, c -> c.hget(key, field));
+    }
+
+    @Override
+    public Mono<Boolean> hset(int indexdb, String key, String field, String value) {
+        return execute(indexdb, c -> c.hset(key, field, value));
+    }
+
+    @Override
+    public Mono<Map<String, String>> hgetAll(int indexdb, String key) {
+        return execute(indexdb, c -> c.hgetall(key)
+                .collectMap(KeyValue::getKey, KeyValue::getValue));
+    }
+
+    @Override
+    public Mono<Long> publish(int indexdb, String channel, String message) {
+        return execute(indexdb, c -> c.publish(channel, message));
+    }
+
+    /**
+     * 优先使用 EVALSHA 只发送摘要，redis 未缓存该脚本时回退为 EVAL
+     */
+    @Override
+    public <T> Flux<T> eval(int indexdb, String script, List<String> keys, List<String> args) {
+        String[] keyArray = keys.toArray(new String[0]);
+        String[] argArray = args.toArray(new String[0]);
+        return executeMany(indexdb, c -> {
+            String sha1 = scriptShas.computeIfAbsent(script, c::digest);
+            return c.<T>evalsha(sha1, ScriptOutputType.MULTI, keyArray, argArray)
+                    .onErrorResume(RedisNoScriptException.class, e -> c.eval(script, ScriptOutputType.MULTI, keyArray, argArray));
+        });
+    }
+
+}
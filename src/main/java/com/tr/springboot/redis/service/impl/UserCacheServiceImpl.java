@@ -0,0 +1,132 @@
+package com.tr.springboot.redis.service.impl;
+
+import com.tr.springboot.redis.component.RedisCacheCodec;
+import com.tr.springboot.redis.component.UserWriteBehind;
+import com.tr.springboot.redis.entity.User;
+import com.tr.springboot.redis.jpa.UserJpa;
+import com.tr.springboot.redis.service.UserCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 直接读写缓存管理器的 user 缓存，key、值和有效期按 user 缓存的配置生成，与 cache.get、cache.put 一致，不存在的用户缓存为 NullValue
+ * <p>
+ * 开启延迟写回时未命中的用户先查未写回的修改，与 RedisController 的单个查询一致，不会把数据库中的旧数据放入缓存。
+ */
+@Service
+public class UserCacheServiceImpl implements UserCacheService {
+
+    private final Logger logger = LoggerFactory.getLogger(UserCacheServiceImpl.class);
+
+    @Resource
+    private UserJpa userJpa;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Autowired(required = false)
+    private UserWriteBehind writeBehind;
+
+    private RedisCacheCodec codec;
+
+    @PostConstruct
+    public void init() {
+        codec = RedisCacheCodec.of(cacheManager, "user");
+    }
+
+    @Override
+    public List<User> findAllById(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        byte[][] keys = new byte[distinct.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = codec.key(distinct.get(i));
+        }
+        List<byte[]> values = null;
+        try {
+            values = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) c -> c.stringCommands().mGet(keys));
+        } catch (Exception e) {
+            logger.warn("mget user cache failed, loading {} users from database", distinct.size(), e);
+        }
+
+        Map<Integer, User> users = new HashMap<>();
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            byte[] value = values == null ? null : values.get(i);
+            Object cached = value == null ? null : read(value);
+            if (cached instanceof User) {
+                users.put(distinct.get(i), (User) cached);
+            } else if (!(cached instanceof NullValue)) {
+                misses.add(distinct.get(i));
+            }
+        }
+        if (!misses.isEmpty()) {
+            List<User> loaded = writeBehind != null ? writeBehind.loadAll(misses, userJpa::findAllById) : userJpa.findAllById(misses);
+            loaded.forEach(user -> users.put(user.getId(), user));
+            writeBack(misses, users);
+        }
+
+        List<User> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> result.add(users.get(id)));
+        return result;
+    }
+
+    /**
+     * 一个管道写回未命中的用户，数据库中也不存在的写入 NullValue，与 cache.put(id, null) 一致；缓存配置了有效期时一并设置
+     */
+    private void writeBack(List<Integer> misses, Map<Integer, User> users) {
+        Duration ttl = codec.ttl();
+        boolean expires = !ttl.isZero() && !ttl.isNegative();
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                RedisStringCommands commands = connection.stringCommands();
+                for (Integer id : misses) {
+                    byte[] key = codec.key(id);
+                    byte[] value = codec.value(users.get(id));
+                    if (expires) {
+                        commands.pSetEx(key, ttl.toMillis(), value);
+                    } else {
+                        commands.set(key, value);
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("write back {} users to cache failed", misses.size(), e);
+        }
+    }
+
+    /**
+     * 缓存配置修改前写入、无法按当前配置反序列化的值按未命中处理，之后被写回覆盖
+     */
+    private Object read(byte[] value) {
+        try {
+            return codec.read(value);
+        } catch (RuntimeException e) {
+            logger.debug("unreadable user cache value, reloading", e);
+            return null;
+        }
+    }
+
+}
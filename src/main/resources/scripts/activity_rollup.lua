@@ -0,0 +1,8 @@
+-- 多天活跃汇总, 结果不存在时用 BITOP 计算并缓存
+-- KEYS[1] 汇总结果, KEYS[2..] 每天的 bitmap, ARGV[1] 位运算(AND/OR), ARGV[2] 汇总结果有效期(秒)
+-- 返回汇总结果中的用户数
+if redis.call('exists', KEYS[1]) == 0 then
+    redis.call('bitop', ARGV[1], KEYS[1], unpack(KEYS, 2))
+    redis.call('expire', KEYS[1], ARGV[2])
+end
+return redis.call('bitcount', KEYS[1])
@@ -0,0 +1,37 @@
+-- 认领到期的延时任务
+-- KEYS[1] 待执行 zset, KEYS[2] 处理中 zset, KEYS[3] 任务内容 hash, KEYS[4] 执行次数 hash, KEYS[5] 认领令牌 hash, KEYS[6] 死信列表
+-- ARGV[1] 当前时间, ARGV[2] 认领数量, ARGV[3] 可见性超时, ARGV[4] 最大执行次数, ARGV[5] 本次认领的令牌
+-- 先处理可见性超时的任务: 已达到最大执行次数的移入死信列表, 否则放回待执行; 再认领到期任务
+-- 返回 {id, payload, attempts, ...}
+local now = tonumber(ARGV[1])
+local expired = redis.call('zrangebyscore', KEYS[2], '-inf', now, 'LIMIT', 0, ARGV[2])
+for _, id in ipairs(expired) do
+    redis.call('zrem', KEYS[2], id)
+    redis.call('hdel', KEYS[5], id)
+    if tonumber(redis.call('hget', KEYS[4], id) or '0') >= tonumber(ARGV[4]) then
+        local payload = redis.call('hget', KEYS[3], id)
+        if payload then
+            redis.call('lpush', KEYS[6], payload)
+        end
+        redis.call('hdel', KEYS[3], id)
+        redis.call('hdel', KEYS[4], id)
+    else
+        redis.call('zadd', KEYS[1], now, id)
+    end
+end
+local ids = redis.call('zrangebyscore', KEYS[1], '-inf', now, 'LIMIT', 0, ARGV[2])
+local result = {}
+for _, id in ipairs(ids) do
+    redis.call('zrem', KEYS[1], id)
+    local payload = redis.call('hget', KEYS[3], id)
+    if payload then
+        redis.call('zadd', KEYS[2], now + tonumber(ARGV[3]), id)
+        redis.call('hset', KEYS[5], id, ARGV[5])
+        table.insert(result, id)
+        table.insert(result, payload)
+        table.insert(result, tostring(redis.call('hincrby', KEYS[4], id, 1)))
+    else
+        redis.call('hdel', KEYS[4], id)
+    end
+end
+return result
@@ -0,0 +1,26 @@
+-- 提交延时任务的执行结果, 任务仍由提交方的那次认领持有(令牌一致)时才修改, 超时后已被重新认领的任务不受影响
+-- KEYS[1] 待执行 zset, KEYS[2] 处理中 zset, KEYS[3] 任务内容 hash, KEYS[4] 执行次数 hash, KEYS[5] 认领令牌 hash, KEYS[6] 死信列表
+-- ARGV 每 4 个一组: id, 认领令牌, 结果(ack 完成, retry 重试, dead 移入死信列表), 重试时间
+-- 返回实际提交的数量
+local committed = 0
+for i = 1, #ARGV, 4 do
+    local id = ARGV[i]
+    if redis.call('hget', KEYS[5], id) == ARGV[i + 1] then
+        redis.call('zrem', KEYS[2], id)
+        redis.call('hdel', KEYS[5], id)
+        if ARGV[i + 2] == 'retry' then
+            redis.call('zadd', KEYS[1], ARGV[i + 3], id)
+        else
+            if ARGV[i + 2] == 'dead' then
+                local payload = redis.call('hget', KEYS[3], id)
+                if payload then
+                    redis.call('lpush', KEYS[6], payload)
+                end
+            end
+            redis.call('hdel', KEYS[3], id)
+            redis.call('hdel', KEYS[4], id)
+        end
+        committed = committed + 1
+    end
+end
+return committed
@@ -0,0 +1,17 @@
+-- 批量添加延时任务, 任务内容和待执行 zset 在一次调用中写入
+-- KEYS 同 delay_claim, 只使用 KEYS[1] 待执行 zset, KEYS[3] 任务内容 hash
+-- ARGV[1] 到期时间, ARGV[2..] 依次为任务 ID、任务内容
+-- 先检查 key 类型, 类型不对时报错且不写入任何数据; 返回添加的任务数
+for _, key in ipairs({KEYS[1], KEYS[3]}) do
+    local t = redis.call('type', key).ok
+    if t ~= 'none' and t ~= (key == KEYS[1] and 'zset' or 'hash') then
+        return redis.error_reply('WRONGTYPE ' .. key .. ' is a ' .. t)
+    end
+end
+local count = 0
+for i = 2, #ARGV, 2 do
+    redis.call('hset', KEYS[3], ARGV[i], ARGV[i + 1])
+    redis.call('zadd', KEYS[1], ARGV[1], ARGV[i])
+    count = count + 1
+end
+return count
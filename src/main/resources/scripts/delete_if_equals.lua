@@ -0,0 +1,7 @@
+-- 值等于期望值时才删除
+-- KEYS[1] key, ARGV[1] 期望值
+-- 删除成功返回 1, 否则返回 0
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    return redis.call('del', KEYS[1])
+end
+return 0
@@ -0,0 +1,8 @@
+-- 获取值并刷新有效期, 用于滑动过期
+-- KEYS[1] key, ARGV[1] 有效期(秒)
+-- 返回原值, key 不存在返回 nil
+local value = redis.call('get', KEYS[1])
+if value then
+    redis.call('expire', KEYS[1], ARGV[1])
+end
+return value
@@ -0,0 +1,9 @@
+-- 获取值, key 不存在时设置为给定值
+-- KEYS[1] key, ARGV[1] 初始值, ARGV[2] 有效期(秒)
+-- 返回原值, key 不存在返回新设置的值
+local value = redis.call('get', KEYS[1])
+if not value then
+    value = ARGV[1]
+    redis.call('set', KEYS[1], value, 'EX', ARGV[2])
+end
+return value
@@ -0,0 +1,10 @@
+-- 申请号段, 计数器小于本节点已知的最大 ID 时先恢复到该值
+-- KEYS[1] 号段计数器, ARGV[1] 号段大小, ARGV[2] 本节点已知的最大 ID
+-- 返回 {号段结束值, 计数器是否被恢复(1/0)}
+local floor = tonumber(ARGV[2])
+local reset = 0
+if tonumber(redis.call('get', KEYS[1]) or '0') < floor then
+    redis.call('set', KEYS[1], floor)
+    reset = 1
+end
+return {redis.call('incrby', KEYS[1], ARGV[1]), reset}
@@ -0,0 +1,8 @@
+-- 保证号段计数器不小于给定值
+-- KEYS[1] 号段计数器, ARGV[1] 已使用的最大 ID
+-- 返回 1
+local current = tonumber(redis.call('get', KEYS[1]) or '0')
+if current < tonumber(ARGV[1]) then
+    redis.call('set', KEYS[1], ARGV[1])
+end
+return 1
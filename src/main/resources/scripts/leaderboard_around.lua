@@ -0,0 +1,9 @@
+-- 查询成员及其前后各 n 名
+-- KEYS[1] 排行榜 zset, ARGV[1] 成员, ARGV[2] 前后各取的数量
+-- 返回 {起始名次(从 0 开始), {member, score, ...}}, 成员不存在返回空
+local rank = redis.call('zrevrank', KEYS[1], ARGV[1])
+if not rank then
+    return {}
+end
+local start = math.max(0, rank - tonumber(ARGV[2]))
+return {start, redis.call('zrevrange', KEYS[1], start, rank + tonumber(ARGV[2]), 'WITHSCORES')}
@@ -0,0 +1,8 @@
+-- 比较排行榜版本号, 版本变化时返回新的前 top-n 名
+-- KEYS[1] 排行榜 zset, KEYS[2] 版本号, ARGV[1] 本地缓存的版本号, ARGV[2] top-n
+-- 版本未变返回 {version}, 否则返回 {version, 成员总数, {member, score, ...}}
+local version = redis.call('get', KEYS[2]) or '0'
+if version == ARGV[1] then
+    return {version}
+end
+return {version, redis.call('zcard', KEYS[1]), redis.call('zrevrange', KEYS[1], 0, tonumber(ARGV[2]) - 1, 'WITHSCORES')}
@@ -0,0 +1,12 @@
+-- 看门狗续期, 一次调用续期本节点持有的全部锁
+-- KEYS 锁 key, ARGV[1] 租期(毫秒), ARGV[2..] 依次为对应 key 的 token
+-- 返回续期失败(已过期或被他人持有)的 key
+local lost = {}
+for i, key in ipairs(KEYS) do
+    if redis.call('get', key) == ARGV[i + 1] then
+        redis.call('pexpire', key, ARGV[1])
+    else
+        table.insert(lost, key)
+    end
+end
+return lost
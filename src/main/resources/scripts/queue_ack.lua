@@ -0,0 +1,13 @@
+-- 确认可靠队列中处理完的元素, 处理失败的移入失败列表, 全部在一次原子操作中完成, 失败后可以整体重试
+-- KEYS[1] 处理中列表, KEYS[2] 失败列表
+-- ARGV[1] 失败元素数量 n, ARGV[2..n+1] 失败元素, ARGV[n+2..] 全部需要确认的元素
+-- 返回从处理中列表删除的元素数量
+local failed = tonumber(ARGV[1])
+for i = 2, failed + 1 do
+    redis.call('lpush', KEYS[2], ARGV[i])
+end
+local removed = 0
+for i = failed + 2, #ARGV do
+    removed = removed + redis.call('lrem', KEYS[1], -1, ARGV[i])
+end
+return removed
@@ -0,0 +1,12 @@
+-- 从可靠队列右侧认领元素到消费者的处理中列表
+-- KEYS[1] 队列, KEYS[2] 处理中列表, ARGV[1] 认领数量
+-- 返回认领的元素
+local items = {}
+for i = 1, tonumber(ARGV[1]) do
+    local item = redis.call('rpoplpush', KEYS[1], KEYS[2])
+    if not item then
+        break
+    end
+    table.insert(items, item)
+end
+return items
@@ -0,0 +1,16 @@
+-- 把心跳超时的消费者处理中的元素按原顺序放回队列消费端
+-- KEYS[1] 队列, KEYS[2] 消费者心跳 zset, KEYS[3] 处理中列表, ARGV[1] 消费者, ARGV[2] 心跳截止时间
+-- 心跳在截止时间之后更新过则不处理, 返回放回的元素数量
+local heartbeat = redis.call('zscore', KEYS[2], ARGV[1])
+if heartbeat and tonumber(heartbeat) >= tonumber(ARGV[2]) then
+    return 0
+end
+local count = 0
+local item = redis.call('lpop', KEYS[3])
+while item do
+    redis.call('rpush', KEYS[1], item)
+    count = count + 1
+    item = redis.call('lpop', KEYS[3])
+end
+redis.call('zrem', KEYS[2], ARGV[1])
+return count
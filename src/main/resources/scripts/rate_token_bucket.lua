@@ -0,0 +1,21 @@
+-- 令牌桶限流, 补充和扣减在一次调用中完成, 时间取 redis 服务器时间
+-- KEYS[1] 令牌桶, ARGV[1] 每秒生成令牌数, ARGV[2] 桶容量, ARGV[3] 申请数量, ARGV[4] 最少需要数量
+-- 返回实际发放数量, 令牌少于最少需要数量时不发放
+redis.replicate_commands()
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local min = tonumber(ARGV[4])
+local time = redis.call('time')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local bucket = redis.call('hmget', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(bucket[1]) or capacity
+local ts = tonumber(bucket[2]) or now
+tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000)
+local granted = 0
+if tokens >= min then
+    granted = math.min(requested, math.floor(tokens))
+end
+redis.call('hmset', KEYS[1], 'tokens', tostring(tokens - granted), 'ts', tostring(now))
+redis.call('pexpire', KEYS[1], math.ceil(capacity * 1000 / rate) + 1000)
+return granted
@@ -0,0 +1,12 @@
+-- 值等于期望值时才设置新值
+-- KEYS[1] key, ARGV[1] 期望值, ARGV[2] 新值, ARGV[3] 有效期(秒, 可选)
+-- 设置成功返回 1, 否则返回 0
+if redis.call('get', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+if ARGV[3] then
+    redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3])
+else
+    redis.call('set', KEYS[1], ARGV[2])
+end
+return 1
@@ -0,0 +1,5 @@
+-- 记录一条待写回数据库的修改, 同一 field 只保留最后一次, 并记录最早一条未写回修改的时间
+-- KEYS[1] 待写回 hash, KEYS[2] 最早修改时间, ARGV[1] field, ARGV[2] 修改内容, ARGV[3] 当前时间(毫秒)
+redis.call('hset', KEYS[1], ARGV[1], ARGV[2])
+redis.call('set', KEYS[2], ARGV[3], 'NX')
+return 1
@@ -0,0 +1,15 @@
+-- 取出待写回的修改, 整体移入写回中 hash, 之后的修改记录到新的待写回 hash
+-- KEYS[1] 待写回 hash, KEYS[2] 最早修改时间, KEYS[3] 写回中 hash, KEYS[4] 写回中最早修改时间
+-- 上次写回未完成(进程退出、数据库异常)时写回中 hash 仍然存在, 不取新的修改, 重新写回
+-- 返回 1 有需要写回的修改, 0 没有
+if redis.call('exists', KEYS[3]) == 1 then
+    return 1
+end
+if redis.call('exists', KEYS[1]) == 0 then
+    return 0
+end
+redis.call('rename', KEYS[1], KEYS[3])
+if redis.call('exists', KEYS[2]) == 1 then
+    redis.call('rename', KEYS[2], KEYS[4])
+end
+return 1
@@ -0,0 +1,105 @@
+package com.tr.springboot.redis;
+
+import com.tr.springboot.redis.component.RedisScripts;
+import com.tr.springboot.redis.service.RedisPoolService;
+import com.tr.springboot.redis.service.impl.JedisPoolImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * 单元测试使用的本地 redis 进程，以及连接到该进程的 RedisPoolService、RedisScripts
+ * <p>
+ * 组件不启动 Spring 容器，直接创建后按字段名注入依赖和配置，再手动调用初始化方法。
+ */
+public final class EmbeddedRedis implements AutoCloseable {
+
+    public static final int INDEXDB = 3;
+
+    private final int port;
+
+    private final RedisServer server;
+
+    private final JedisPool jedisPool;
+
+    private final RedisPoolService redisPoolService;
+
+    private EmbeddedRedis(int port) throws IOException {
+        this.port = port;
+        server = new RedisServer(port);
+        server.start();
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(64);
+        jedisPool = new JedisPool(config, "127.0.0.1", port, 5000, null);
+        redisPoolService = inject(new JedisPoolImpl(), "jedisPool", jedisPool);
+    }
+
+    public static EmbeddedRedis start() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            socket.setReuseAddress(true);
+            int port = socket.getLocalPort();
+            socket.close();
+            return new EmbeddedRedis(port);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public RedisPoolService redisPoolService() {
+        return redisPoolService;
+    }
+
+    /**
+     * 加载 classpath:scripts/*.lua 的脚本注册表
+     */
+    public RedisScripts redisScripts() {
+        return redisScripts(new RedisScripts());
+    }
+
+    /**
+     * 初始化给定的脚本注册表，可以传入重写了 execute 的子类模拟 redis 异常
+     */
+    public <T extends RedisScripts> T redisScripts(T scripts) {
+        inject(scripts, "redisPoolService", redisPoolService, "indexdb", INDEXDB);
+        try {
+            scripts.init();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return scripts;
+    }
+
+    public void flush() {
+        redisPoolService.flushDB(INDEXDB);
+    }
+
+    /**
+     * 按字段名注入，参数依次为字段名、值
+     */
+    public static <T> T inject(T target, Object... fields) {
+        for (int i = 0; i < fields.length; i += 2) {
+            ReflectionTestUtils.setField(target, (String) fields[i], fields[i + 1]);
+        }
+        return target;
+    }
+
+    @Override
+    public void close() {
+        jedisPool.close();
+        try {
+            server.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import com.tr.springboot.redis.entity.User;
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisCacheCodecTest {
+
+    private static EmbeddedRedis redis;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration("127.0.0.1", redis.port());
+        standalone.setDatabase(EmbeddedRedis.INDEXDB);
+        connectionFactory = new LettuceConnectionFactory(standalone);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    private RedisCacheManager cacheManager(RedisCacheConfiguration config) {
+        RedisCacheManager cacheManager = RedisCacheManager.builder(connectionFactory).cacheDefaults(config).build();
+        cacheManager.afterPropertiesSet();
+        return cacheManager;
+    }
+
+    @Test
+    void matchesDefaultCacheConfiguration() {
+        RedisCacheManager cacheManager = cacheManager(RedisCacheConfiguration.defaultCacheConfig());
+        assertRoundTrip(cacheManager);
+        assertNotNull(redis.redisPoolService().get(EmbeddedRedis.INDEXDB, "user::1".getBytes()));
+    }
+
+    @Test
+    void followsCustomPrefixSerializerAndTtl() {
+        RedisCacheManager cacheManager = cacheManager(RedisCacheConfiguration.defaultCacheConfig()
+                .prefixCacheNameWith("app:")
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
+                .entryTtl(Duration.ofMinutes(5)));
+        assertRoundTrip(cacheManager);
+        assertNotNull(redis.redisPoolService().get(EmbeddedRedis.INDEXDB, "app:user::1".getBytes()));
+        assertEquals(Duration.ofMinutes(5), RedisCacheCodec.of(cacheManager, "user").ttl());
+    }
+
+    private static void assertRoundTrip(RedisCacheManager cacheManager) {
+        RedisPoolService redisPoolService = redis.redisPoolService();
+        Cache cache = cacheManager.getCache("user");
+        RedisCacheCodec codec = RedisCacheCodec.of(cacheManager, "user");
+
+        // cache.put 写入的数据由 codec 读取
+        cache.put(1, new User(1, "james", 30));
+        cache.put(2, null);
+        assertEquals(new User(1, "james", 30), codec.read(redisPoolService.get(EmbeddedRedis.INDEXDB, codec.key(1))));
+        assertSame(NullValue.INSTANCE, codec.read(redisPoolService.get(EmbeddedRedis.INDEXDB, codec.key(2))));
+
+        // codec 写入的数据由 cache.get 读取
+        redisPoolService.set(EmbeddedRedis.INDEXDB, codec.key(3), codec.value(new User(3, "kobe", 40)));
+        redisPoolService.set(EmbeddedRedis.INDEXDB, codec.key(4), codec.value(null));
+        assertEquals(new User(3, "kobe", 40), cache.get(3).get());
+        Cache.ValueWrapper cachedNull = cache.get(4);
+        assertTrue(cachedNull != null && cachedNull.get() == null);
+        assertNull(cache.get(5));
+    }
+
+}
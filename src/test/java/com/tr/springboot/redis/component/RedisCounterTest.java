@@ -0,0 +1,136 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import com.tr.springboot.redis.service.RedisPipeline;
+import com.tr.springboot.redis.service.RedisPoolService;
+import com.tr.springboot.redis.service.impl.JedisPoolImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RedisCounterTest {
+
+    private static EmbeddedRedis redis;
+
+    private RedisPoolService redisPoolService;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        redisPoolService = redis.redisPoolService();
+    }
+
+    private static RedisCounter counter(RedisPoolService redisPoolService, long flushInterval) {
+        return EmbeddedRedis.inject(new RedisCounter(), "redisPoolService", redisPoolService,
+                "indexdb", EmbeddedRedis.INDEXDB, "flushInterval", flushInterval, "batchSize", 3, "shards", 1);
+    }
+
+    private static void flush(RedisCounter counter) {
+        ReflectionTestUtils.invokeMethod(counter, "flush");
+    }
+
+    @Test
+    void concurrentIncrementsSurviveIdleRetirement() throws Exception {
+        // 刷新周期很短，线程停顿期间计数器被移除，恢复累加时可能还持有被移除的计数器
+        RedisCounter counter = counter(redisPoolService, 2);
+        counter.init();
+        int threads = 8;
+        int rounds = 3000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    counter.incr("hits:" + (i % 4));
+                    counter.hincrBy("hits", "f" + (i % 3), 1);
+                    counter.zincrBy("hot", "m" + (i % 2), 1);
+                    if (i % 500 == 0) {
+                        try {
+                            Thread.sleep(ThreadLocalRandom.current().nextInt(10));
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        counter.destroy();
+
+        long plain = 0;
+        long hash = 0;
+        for (int i = 0; i < 4; i++) {
+            plain += Long.parseLong(redisPoolService.get(EmbeddedRedis.INDEXDB, "hits:" + i));
+        }
+        for (int i = 0; i < 3; i++) {
+            hash += Long.parseLong(redisPoolService.hget(EmbeddedRedis.INDEXDB, "hits", "f" + i));
+        }
+        assertEquals(threads * rounds, plain);
+        assertEquals(threads * rounds, hash);
+        assertEquals(threads * rounds, redisPoolService.zscore(EmbeddedRedis.INDEXDB, "hot", "m0")
+                + redisPoolService.zscore(EmbeddedRedis.INDEXDB, "hot", "m1"), 0);
+    }
+
+    @Test
+    void failedPipelineIsRetriedOnNextFlush() {
+        boolean[] down = {true};
+        RedisPoolService flaky = EmbeddedRedis.inject(new JedisPoolImpl() {
+            @Override
+            public List<Object> pipelined(int indexdb, Consumer<RedisPipeline> commands) {
+                return down[0] ? null : super.pipelined(indexdb, commands);
+            }
+        }, "jedisPool", ReflectionTestUtils.getField(redisPoolService, "jedisPool"));
+        RedisCounter counter = counter(flaky, 60000);
+        for (int i = 0; i < 5; i++) {
+            counter.incrBy("retry:" + i, i + 1);
+        }
+
+        flush(counter);
+        assertNull(redisPoolService.get(EmbeddedRedis.INDEXDB, "retry:0"));
+
+        down[0] = false;
+        flush(counter);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(String.valueOf(i + 1), redisPoolService.get(EmbeddedRedis.INDEXDB, "retry:" + i));
+        }
+    }
+
+    @Test
+    void rejectedCommandIsDroppedInsteadOfRetriedForever() {
+        redisPoolService.lpush(EmbeddedRedis.INDEXDB, "not-a-counter", "x");
+        RedisCounter counter = counter(redisPoolService, 60000);
+        counter.incrBy("not-a-counter", 5);
+        counter.incr("good");
+
+        flush(counter);
+        flush(counter);
+
+        // 本地不再保留被拒绝的增量
+        assertEquals(0L, counter.get("not-a-counter"));
+        assertEquals(1L, counter.get("good"));
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisDelayQueueTest {
+
+    private static EmbeddedRedis redis;
+
+    private final List<RedisDelayQueue> nodes = new ArrayList<>();
+
+    private RedisPoolService redisPoolService;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        redisPoolService = redis.redisPoolService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(RedisDelayQueue::destroy);
+    }
+
+    private RedisDelayQueue node(int workers, int capacity, long visibilityTimeout) {
+        RedisDelayQueue queue = EmbeddedRedis.inject(new RedisDelayQueue(), "redisScripts", redis.redisScripts(),
+                "indexdb", EmbeddedRedis.INDEXDB, "workers", workers, "capacity", capacity, "batchSize", 50, "pollInterval", 20L, "visibilityTimeout", visibilityTimeout,
+                "maxAttempts", 2, "retryBackoff", 50L);
+        queue.init();
+        nodes.add(queue);
+        return queue;
+    }
+
+    @Test
+    void eachJobRunsOnceAcrossNodes() throws Exception {
+        int jobs = 2000;
+        Map<String, AtomicInteger> runs = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(jobs);
+        for (int n = 0; n < 3; n++) {
+            // 排队容量很小，认领的任务经常排不下，由轮询线程自己执行
+            node(2, 4, 60000).subscribe("orders", payload -> {
+                runs.computeIfAbsent(payload, k -> new AtomicInteger()).incrementAndGet();
+                done.countDown();
+            });
+        }
+        List<String> payloads = new ArrayList<>();
+        for (int i = 0; i < jobs; i++) {
+            payloads.add("job-" + i);
+        }
+        assertNotNull(nodes.get(0).schedule("orders", payloads, 100, TimeUnit.MILLISECONDS));
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(jobs, runs.size());
+        assertTrue(runs.values().stream().allMatch(count -> count.get() == 1));
+        awaitTrue(() -> redisPoolService.hlen(EmbeddedRedis.INDEXDB, "delay:orders:jobs") == 0);
+        assertEquals(0L, redisPoolService.zcard(EmbeddedRedis.INDEXDB, "delay:orders:processing"));
+    }
+
+    @Test
+    void failedJobIsRetriedThenMovedToDeadLetter() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        node(2, 10, 60000).subscribe("failing", payload -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("boom");
+        });
+        nodes.get(0).schedule("failing", "bad", 0, TimeUnit.MILLISECONDS);
+
+        awaitTrue(() -> redisPoolService.llen(EmbeddedRedis.INDEXDB, "delay:failing:dead") == 1);
+        assertEquals(2, attempts.get());
+        assertEquals("bad", redisPoolService.lindex(EmbeddedRedis.INDEXDB, "delay:failing:dead", 0));
+        assertEquals(0L, redisPoolService.hlen(EmbeddedRedis.INDEXDB, "delay:failing:jobs"));
+    }
+
+    @Test
+    void jobThatNeverCompletesStopsAtMaxAttempts() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        node(4, 10, 200).subscribe("hung", payload -> {
+            attempts.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        nodes.get(0).schedule("hung", "stuck", 0, TimeUnit.MILLISECONDS);
+        try {
+            awaitTrue(() -> redisPoolService.llen(EmbeddedRedis.INDEXDB, "delay:hung:dead") == 1);
+            Thread.sleep(500);
+            assertEquals(2, attempts.get());
+        } finally {
+            release.countDown();
+        }
+        // 超时后才完成的执行结果令牌已失效，不会再修改任务
+        Thread.sleep(200);
+        assertEquals(1L, redisPoolService.llen(EmbeddedRedis.INDEXDB, "delay:hung:dead"));
+        assertEquals(0L, redisPoolService.hlen(EmbeddedRedis.INDEXDB, "delay:hung:jobs"));
+    }
+
+    @Test
+    void lateResultDoesNotTouchReclaimedJob() throws Exception {
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondRunning = new CountDownLatch(1);
+        CountDownLatch releaseSecond = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        node(4, 10, 300).subscribe("slow", payload -> {
+            try {
+                if (attempts.incrementAndGet() == 1) {
+                    firstRunning.countDown();
+                    releaseFirst.await();
+                } else {
+                    secondRunning.countDown();
+                    releaseSecond.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        nodes.get(0).schedule("slow", "report", 0, TimeUnit.MILLISECONDS);
+        assertTrue(firstRunning.await(5, TimeUnit.SECONDS));
+        assertTrue(secondRunning.await(5, TimeUnit.SECONDS));
+
+        // 第一次执行在重新认领之后才完成，它的确认不能删除正在执行的第二次认领
+        releaseFirst.countDown();
+        Thread.sleep(200);
+        assertEquals(1L, redisPoolService.zcard(EmbeddedRedis.INDEXDB, "delay:slow:processing"));
+        assertEquals("report", redisPoolService.hget(EmbeddedRedis.INDEXDB, "delay:slow:jobs",
+                redisPoolService.zrange(EmbeddedRedis.INDEXDB, "delay:slow:processing", 0, 0).iterator().next()));
+
+        releaseSecond.countDown();
+        awaitTrue(() -> redisPoolService.hlen(EmbeddedRedis.INDEXDB, "delay:slow:jobs") == 0);
+        assertEquals(0L, redisPoolService.llen(EmbeddedRedis.INDEXDB, "delay:slow:dead"));
+    }
+
+    @Test
+    void scheduleWritesAllJobsOrNothing() {
+        RedisDelayQueue queue = node(1, 1, 60000);
+        assertTrue(queue.schedule("batch", Collections.emptyList(), 1, TimeUnit.MINUTES).isEmpty());
+
+        List<String> ids = queue.schedule("batch", Arrays.asList("a", "b", "c"), 1, TimeUnit.MINUTES);
+        assertEquals(3, ids.size());
+        assertEquals(3L, redisPoolService.zcard(EmbeddedRedis.INDEXDB, "delay:batch"));
+        assertEquals("b", redisPoolService.hget(EmbeddedRedis.INDEXDB, "delay:batch:jobs", ids.get(1)));
+
+        // 任务内容 key 类型不对时不返回 ID，待执行 zset 也不写入
+        redisPoolService.set(EmbeddedRedis.INDEXDB, "delay:broken:jobs", "x");
+        assertNull(queue.schedule("broken", Arrays.asList("a", "b"), 1, TimeUnit.MINUTES));
+        assertFalse(redisPoolService.exists(EmbeddedRedis.INDEXDB, "delay:broken"));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+
+}
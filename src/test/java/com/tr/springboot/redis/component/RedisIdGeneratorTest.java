@@ -0,0 +1,75 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisIdGeneratorTest {
+
+    private static EmbeddedRedis redis;
+
+    private RedisIdGenerator generator;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        generator = EmbeddedRedis.inject(new RedisIdGenerator(), "redisPoolService", redis.redisPoolService(),
+                "redisScripts", redis.redisScripts(), "indexdb", EmbeddedRedis.INDEXDB, "segmentSize", 10L, "prefetchRatio", 0.0);
+        generator.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.destroy();
+    }
+
+    @Test
+    void restoresCounterFromLocalFloorAfterLoss() {
+        generator.ensureAtLeast("order", 100);
+        Set<Long> issued = new HashSet<>();
+        for (int i = 0; i < 15; i++) {
+            issued.add(generator.nextId("order"));
+        }
+        redis.flush();
+        // 预取的号段可能晚于同步申请的号段返回，ID 不保证递增，只保证不重复
+        for (int i = 0; i < 30; i++) {
+            long id = generator.nextId("order");
+            assertTrue(id > 100 && issued.add(id), "id " + id + " reissued after counter loss");
+        }
+    }
+
+    @Test
+    void reseedsFromRegisteredFloorAfterLoss() {
+        AtomicLong used = new AtomicLong(0);
+        generator.registerFloor("user", used::get);
+        assertEquals(1, generator.nextId("user"));
+        // 其他节点写入了更大的 ID 之后计数器丢失
+        used.set(500);
+        redis.flush();
+        for (int i = 0; i < 9; i++) {
+            generator.nextId("user");
+        }
+        assertTrue(generator.nextId("user") > 500);
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import com.tr.springboot.redis.service.RedisPoolService;
+import com.tr.springboot.redis.service.impl.JedisPoolImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.ScanResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisKeyspaceTransferTest {
+
+    private static EmbeddedRedis redis;
+
+    @TempDir
+    Path dir;
+
+    private RedisKeyspaceTransfer transfer;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        transfer = EmbeddedRedis.inject(new RedisKeyspaceTransfer(), "redisPoolService", redis.redisPoolService(),
+                "dir", dir.toString(), "batchSize", 2, "threads", 2);
+        transfer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transfer.destroy();
+    }
+
+    @Test
+    void binaryKeysSurviveExportAndRestore() throws IOException {
+        RedisPoolService redisPoolService = redis.redisPoolService();
+        // JDK 序列化流的开头，不是合法的 UTF-8
+        byte[] binary = {(byte) 0xAC, (byte) 0xED, 0x00, 0x05, (byte) 0xFF};
+        byte[] text = "user::1".getBytes(StandardCharsets.UTF_8);
+        redisPoolService.set(EmbeddedRedis.INDEXDB, binary, "b".getBytes(StandardCharsets.UTF_8));
+        redisPoolService.setex(EmbeddedRedis.INDEXDB, text, "t".getBytes(StandardCharsets.UTF_8), 600);
+        redisPoolService.set(EmbeddedRedis.INDEXDB, "plain", "p");
+
+        RedisKeyspaceTransfer.Stats exported = transfer.export(EmbeddedRedis.INDEXDB, "db.rdmp");
+        assertEquals(3, exported.getRecords());
+        redis.flush();
+        assertNull(redisPoolService.get(EmbeddedRedis.INDEXDB, binary));
+
+        RedisKeyspaceTransfer.Stats restored = transfer.restore(EmbeddedRedis.INDEXDB, "db.rdmp", false);
+        assertEquals(3, restored.getRecords());
+        assertEquals(0, restored.getFailed());
+        assertArrayEquals("b".getBytes(StandardCharsets.UTF_8), redisPoolService.get(EmbeddedRedis.INDEXDB, binary));
+        assertArrayEquals("t".getBytes(StandardCharsets.UTF_8), redisPoolService.get(EmbeddedRedis.INDEXDB, text));
+        assertEquals("p", redisPoolService.get(EmbeddedRedis.INDEXDB, "plain"));
+        assertTrue(redisPoolService.ttl(EmbeddedRedis.INDEXDB, "user::1") > 0);
+    }
+
+    @Test
+    void restoreWithoutReplaceCountsExistingKeysAsFailed() throws IOException {
+        RedisPoolService redisPoolService = redis.redisPoolService();
+        redisPoolService.set(EmbeddedRedis.INDEXDB, "a", "1");
+        redisPoolService.set(EmbeddedRedis.INDEXDB, "b", "2");
+        transfer.export(EmbeddedRedis.INDEXDB, "db.rdmp");
+        redis.flush();
+        redisPoolService.set(EmbeddedRedis.INDEXDB, "a", "changed");
+
+        assertEquals(1, transfer.restore(EmbeddedRedis.INDEXDB, "db.rdmp", false).getFailed());
+        assertEquals("changed", redisPoolService.get(EmbeddedRedis.INDEXDB, "a"));
+        assertEquals("2", redisPoolService.get(EmbeddedRedis.INDEXDB, "b"));
+        assertEquals(0, transfer.restore(EmbeddedRedis.INDEXDB, "db.rdmp", true).getFailed());
+        assertEquals("1", redisPoolService.get(EmbeddedRedis.INDEXDB, "a"));
+    }
+
+    @Test
+    void failedExportKeepsPreviousFile() throws IOException {
+        RedisPoolService redisPoolService = redis.redisPoolService();
+        redisPoolService.set(EmbeddedRedis.INDEXDB, "a", "1");
+        transfer.export(EmbeddedRedis.INDEXDB, "db.rdmp");
+
+        RedisPoolService broken = EmbeddedRedis.inject(new JedisPoolImpl() {
+            @Override
+            public ScanResult<byte[]> scan(int indexdb, byte[] cursor, byte[] pattern, int count) {
+                return null;
+            }
+        }, "jedisPool", ReflectionTestUtils.getField(redisPoolService, "jedisPool"));
+        ReflectionTestUtils.setField(transfer, "redisPoolService", broken);
+        assertThrows(IOException.class, () -> transfer.export(EmbeddedRedis.INDEXDB, "db.rdmp"));
+        assertFalse(Files.exists(dir.resolve("db.rdmp.tmp")));
+
+        ReflectionTestUtils.setField(transfer, "redisPoolService", redisPoolService);
+        redis.flush();
+        assertEquals(1, transfer.restore(EmbeddedRedis.INDEXDB, "db.rdmp", false).getRecords());
+        assertEquals("1", redisPoolService.get(EmbeddedRedis.INDEXDB, "a"));
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisLocalCacheTest {
+
+    private static RedisLocalCache localCache(int maxEntries) {
+        RedisLocalCache localCache = EmbeddedRedis.inject(new RedisLocalCache(), "enabled", true,
+                "maxEntries", maxEntries, "snapshotFile", "");
+        localCache.init();
+        return localCache;
+    }
+
+    @Test
+    void evictionKeepsRecentlyReadEntries() {
+        RedisLocalCache localCache = localCache(100);
+        localCache.put("user", "hot", "v1", "hot");
+        for (int i = 0; i < 1000; i++) {
+            // 每次写入前读取，hot 始终比除刚写入的条目外的其他条目更近被访问
+            assertEquals("hot", localCache.get("user", "hot", "v1"));
+            localCache.put("user", i, "v1", i);
+        }
+
+        int cached = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (localCache.get("user", i, "v1") != null) {
+                cached++;
+            }
+        }
+        assertTrue(cached < 100, "cached " + cached);
+        assertEquals("hot", localCache.get("user", "hot", "v1"));
+    }
+
+    @Test
+    void concurrentReadsAndWritesStayWithinLimit() throws Exception {
+        RedisLocalCache localCache = localCache(50);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 1000;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    localCache.put("user", offset + i, "v1", offset + i);
+                    localCache.get("user", offset + i / 2, "v1");
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int cached = 0;
+        for (int i = 0; i < 8000; i++) {
+            if (localCache.get("user", i, "v1") != null) {
+                cached++;
+            }
+        }
+        assertTrue(cached <= 50, "cached " + cached);
+    }
+
+    @Test
+    void staleVersionIsNotReturned() {
+        RedisLocalCache localCache = localCache(10);
+        localCache.put("user", 1, "v1", "old");
+        assertNull(localCache.get("user", 1, "v2"));
+        assertNull(localCache.get("user", 1, "v1"));
+    }
+
+}
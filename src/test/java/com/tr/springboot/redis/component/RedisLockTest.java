@@ -0,0 +1,163 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisLockTest {
+
+    private static EmbeddedRedis redis;
+
+    private RedisLock node1;
+
+    private RedisLock node2;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        RedisScripts scripts = redis.redisScripts();
+        node1 = lock(scripts, 30000);
+        node2 = lock(scripts, 30000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        node1.destroy();
+        node2.destroy();
+    }
+
+    private static RedisLock lock(RedisScripts scripts, long leaseTime) {
+        RedisLock lock = EmbeddedRedis.inject(new RedisLock(), "redisPoolService", redis.redisPoolService(),
+                "redisScripts", scripts, "indexdb", EmbeddedRedis.INDEXDB, "leaseTime", leaseTime,
+                "stripes", 16, "maxBackoff", 5L);
+        lock.init();
+        return lock;
+    }
+
+    @Test
+    void mutualExclusionAcrossNodes() throws Exception {
+        int threads = 16;
+        int rounds = 50;
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        int[] counter = new int[1];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            RedisLock lock = t % 2 == 0 ? node1 : node2;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < rounds; i++) {
+                    lock.executeWithLock("counter", 10, TimeUnit.SECONDS, () -> {
+                        if (inside.incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        counter[0]++;
+                        inside.decrementAndGet();
+                        return null;
+                    });
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(0, overlaps.get());
+        assertEquals(threads * rounds, counter[0]);
+    }
+
+    @Test
+    void reentrantAndReleasedAfterLastUnlock() throws Exception {
+        assertTrue(node1.tryLock("reentrant", 0, TimeUnit.MILLISECONDS));
+        assertTrue(node1.tryLock("reentrant", 0, TimeUnit.MILLISECONDS));
+        node1.unlock("reentrant");
+        assertFalse(tryLockInOtherThread(node2, "reentrant"));
+        node1.unlock("reentrant");
+        assertTrue(tryLockInOtherThread(node2, "reentrant"));
+        assertThrows(IllegalMonitorStateException.class, () -> node1.unlock("reentrant"));
+    }
+
+    @Test
+    void watchdogKeepsLockBeyondLeaseAndReportsLoss() throws Exception {
+        RedisLock shortLease = lock(redis.redisScripts(), 300);
+        try {
+            assertTrue(shortLease.tryLock("lease", 0, TimeUnit.MILLISECONDS));
+            Thread.sleep(900);
+            assertTrue(shortLease.isHeld("lease"));
+            assertFalse(tryLockInOtherThread(node2, "lease"));
+
+            redis.redisPoolService().del(EmbeddedRedis.INDEXDB, "lock:lease");
+            Thread.sleep(300);
+            assertFalse(shortLease.isHeld("lease"));
+            shortLease.unlock("lease");
+        } finally {
+            shortLease.destroy();
+        }
+    }
+
+    @Test
+    void executeWithLockFailsWhenLockLost() {
+        RedisLock shortLease = lock(redis.redisScripts(), 300);
+        try {
+            assertThrows(IllegalStateException.class, () -> shortLease.executeWithLock("lost", 0, TimeUnit.MILLISECONDS, () -> {
+                redis.redisPoolService().del(EmbeddedRedis.INDEXDB, "lock:lost");
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertFalse(redis.redisPoolService().exists(EmbeddedRedis.INDEXDB, "lock:lost"));
+        } finally {
+            shortLease.destroy();
+        }
+    }
+
+    private static boolean tryLockInOtherThread(RedisLock lock, String name) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(() -> {
+                boolean locked = lock.tryLock(name, 0, TimeUnit.MILLISECONDS);
+                if (locked) {
+                    lock.unlock(name);
+                }
+                return locked;
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
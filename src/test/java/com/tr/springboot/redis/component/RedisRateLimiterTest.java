@@ -0,0 +1,109 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisRateLimiterTest {
+
+    private static EmbeddedRedis redis;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+    }
+
+    private static RedisRateLimiter limiter(RedisScripts scripts, boolean failOpen) {
+        return EmbeddedRedis.inject(new RedisRateLimiter(), "redisScripts", scripts, "prefetchRatio", 0.1,
+                "leaseTime", 1000L, "failOpen", failOpen);
+    }
+
+    @Test
+    void bucketAllowsBurstThenRefillsAtRate() throws Exception {
+        RedisRateLimiter limiter = limiter(redis.redisScripts(), true);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("burst", 10, 5));
+        }
+        assertFalse(limiter.tryAcquire("burst", 10, 5));
+
+        // 10 个/秒，300 毫秒补充约 3 个
+        Thread.sleep(300);
+        int granted = 0;
+        while (limiter.tryAcquire("burst", 10, 5)) {
+            granted++;
+        }
+        assertTrue(granted >= 2 && granted <= 4, "granted " + granted);
+    }
+
+    @Test
+    void permitsAreAllOrNothing() {
+        RedisRateLimiter limiter = limiter(redis.redisScripts(), true);
+        assertTrue(limiter.tryAcquire("bulk", 1, 5, 3));
+        // 剩余 2 个，不足 3 个时不扣减
+        assertFalse(limiter.tryAcquire("bulk", 1, 5, 3));
+        assertTrue(limiter.tryAcquire("bulk", 1, 5, 2));
+        assertFalse(limiter.tryAcquire("bulk", 1, 5));
+    }
+
+    @Test
+    void leasedTokensNeverExceedTheGlobalBucket() {
+        RedisScripts scripts = redis.redisScripts();
+        RedisRateLimiter node1 = limiter(scripts, true);
+        RedisRateLimiter node2 = limiter(scripts, true);
+        long start = System.currentTimeMillis();
+        int granted = 0;
+        for (int i = 0; i < 200; i++) {
+            if (node1.tryAcquireLeased("leased", 100, 30)) {
+                granted++;
+            }
+            if (node2.tryAcquireLeased("leased", 100, 30)) {
+                granted++;
+            }
+        }
+        long refilled = (System.currentTimeMillis() - start) * 100 / 1000 + 1;
+        // 租借的令牌已从全局扣除，两个节点合计不会超过桶容量加上期间补充的数量；每批 10 个，误差不超过一批
+        assertTrue(granted <= 30 + refilled, "granted " + granted + ", refilled " + refilled);
+        assertTrue(granted >= 30 - 10, "granted " + granted);
+    }
+
+    @Test
+    void nonPositiveArgumentsAreRejected() {
+        RedisRateLimiter limiter = limiter(redis.redisScripts(), true);
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("invalid", 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("invalid", 5, 0));
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("invalid", 5, 5, 0));
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquireLeased("invalid", 0, 5));
+    }
+
+    @Test
+    void redisFailureFollowsFailOpen() {
+        RedisScripts broken = redis.redisScripts(new RedisScripts() {
+            @Override
+            public Object execute(String name, List<String> keys, List<String> args) {
+                return null;
+            }
+        });
+        assertTrue(limiter(broken, true).tryAcquire("down", 10, 5));
+        assertFalse(limiter(broken, false).tryAcquire("down", 10, 5));
+        assertFalse(limiter(broken, false).tryAcquireLeased("down", 10, 5));
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.tr.springboot.redis.component;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisReliableQueueTest {
+
+    private static EmbeddedRedis redis;
+
+    private final List<RedisReliableQueue> nodes = new ArrayList<>();
+
+    private RedisPoolService redisPoolService;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        redisPoolService = redis.redisPoolService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(RedisReliableQueue::destroy);
+    }
+
+    private RedisReliableQueue node(RedisScripts scripts, long deadTimeout) {
+        RedisReliableQueue queue = EmbeddedRedis.inject(new RedisReliableQueue(), "redisPoolService", redisPoolService,
+                "redisScripts", scripts, "indexdb", EmbeddedRedis.INDEXDB, "consumers", 3, "batchSize", 20,
+                "blockTimeout", 1, "deadTimeout", deadTimeout);
+        queue.init();
+        nodes.add(queue);
+        return queue;
+    }
+
+    @Test
+    void itemsConsumedOnceAcrossNodesAndFailuresKept() throws Exception {
+        int total = 3000;
+        Map<String, AtomicInteger> handled = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(total);
+        for (int n = 0; n < 3; n++) {
+            node(redis.redisScripts(), 30000).subscribe("mail", item -> {
+                handled.computeIfAbsent(item, k -> new AtomicInteger()).incrementAndGet();
+                done.countDown();
+                if (item.endsWith("7")) {
+                    throw new IllegalArgumentException("bad address");
+                }
+            });
+        }
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            items.add("mail-" + i);
+        }
+        assertTrue(nodes.get(0).push("mail", items));
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(total, handled.size());
+        assertTrue(handled.values().stream().allMatch(count -> count.get() == 1));
+        awaitTrue(() -> redisPoolService.llen(EmbeddedRedis.INDEXDB, "queue:mail:failed") == total / 10);
+        assertEquals(0, processingItems("mail"));
+        assertEquals(0L, redisPoolService.llen(EmbeddedRedis.INDEXDB, "queue:mail"));
+    }
+
+    @Test
+    void failedAckIsRetried() throws Exception {
+        AtomicInteger ackFailures = new AtomicInteger(3);
+        RedisScripts flaky = redis.redisScripts(new RedisScripts() {
+            @Override
+            public Object execute(String name, List<String> keys, List<String> args) {
+                if ("queue_ack".equals(name) && ackFailures.getAndDecrement() > 0) {
+                    return null;
+                }
+                return super.execute(name, keys, args);
+            }
+        });
+        Map<String, AtomicInteger> handled = new ConcurrentHashMap<>();
+        node(flaky, 30000).subscribe("ack", item -> handled.computeIfAbsent(item, k -> new AtomicInteger()).incrementAndGet());
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add("item-" + i);
+        }
+        nodes.get(0).push("ack", items);
+
+        awaitTrue(() -> handled.size() == 100 && processingItems("ack") == 0);
+        assertTrue(ackFailures.get() < 0);
+        assertTrue(handled.values().stream().allMatch(count -> count.get() == 1));
+    }
+
+    @Test
+    void itemsOfDeadConsumerAreRequeued() throws Exception {
+        // 已宕机的消费者：心跳早已超时，处理中列表还有元素
+        redisPoolService.zadd(EmbeddedRedis.INDEXDB, "queue:jobs:consumers", 0, "crashed:0");
+        redisPoolService.lpush(EmbeddedRedis.INDEXDB, "queue:jobs:processing:crashed:0", "a", "b", "c");
+
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        node(redis.redisScripts(), 300).subscribe("jobs", handled::add);
+
+        awaitTrue(() -> handled.size() == 3);
+        assertTrue(handled.containsAll(Arrays.asList("a", "b", "c")));
+        assertEquals(0L, redisPoolService.llen(EmbeddedRedis.INDEXDB, "queue:jobs:processing:crashed:0"));
+        assertNull(redisPoolService.zscore(EmbeddedRedis.INDEXDB, "queue:jobs:consumers", "crashed:0"));
+    }
+
+    private long processingItems(String queue) {
+        long count = 0;
+        for (String key : redisPoolService.keys(EmbeddedRedis.INDEXDB, "queue:" + queue + ":processing:*")) {
+            count += redisPoolService.llen(EmbeddedRedis.INDEXDB, key);
+        }
+        return count;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+
+}
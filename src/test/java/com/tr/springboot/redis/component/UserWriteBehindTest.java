@@ -0,0 +1,224 @@
+package com.tr.springboot.redis.component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tr.springboot.redis.EmbeddedRedis;
+import com.tr.springboot.redis.entity.User;
+import com.tr.springboot.redis.service.RedisPoolService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserWriteBehindTest {
+
+    private static final String PENDING = "write-behind:user:pending";
+
+    private static final String FLUSHING = "write-behind:user:flushing";
+
+    private static final String FAILED = "write-behind:user:failed";
+
+    private static EmbeddedRedis redis;
+
+    private RedisPoolService redisPoolService;
+
+    private RedisScripts redisScripts;
+
+    private RedisLock redisLock;
+
+    private RedisVersionStamps versionStamps;
+
+    private FakeUserTable table;
+
+    private UserWriteBehind writeBehind;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        redisPoolService = redis.redisPoolService();
+        redisScripts = redis.redisScripts();
+        redisLock = EmbeddedRedis.inject(new RedisLock(), "redisPoolService", redisPoolService,
+                "redisScripts", redisScripts, "indexdb", EmbeddedRedis.INDEXDB, "leaseTime", 30000L,
+                "stripes", 16, "maxBackoff", 5L);
+        redisLock.init();
+        versionStamps = EmbeddedRedis.inject(new RedisVersionStamps(), "redisPoolService", redisPoolService,
+                "redisScripts", redisScripts, "indexdb", EmbeddedRedis.INDEXDB, "expireSeconds", 600);
+        table = new FakeUserTable();
+        // 不调用 init，由测试手动写回
+        writeBehind = EmbeddedRedis.inject(new UserWriteBehind(), "redisPoolService", redisPoolService,
+                "redisScripts", redisScripts, "redisLock", redisLock, "jdbcTemplate", table,
+                "objectMapper", new ObjectMapper(), "versionStamps", versionStamps,
+                "indexdb", EmbeddedRedis.INDEXDB, "flushInterval", 1000L, "batchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        redisLock.destroy();
+    }
+
+    private void flush() {
+        ReflectionTestUtils.invokeMethod(writeBehind, "flush");
+    }
+
+    @Test
+    void readsPreferUnflushedChangesOverDatabase() {
+        List<User> database = Arrays.asList(new User(1, "old", 1), new User(2, "old", 2), new User(3, "old", 3));
+        writeBehind.save(new User(1, "new", 10));
+        writeBehind.delete(2);
+
+        List<Integer> queried = new ArrayList<>();
+        List<User> users = writeBehind.loadAll(Arrays.asList(1, 2, 3), ids -> {
+            queried.addAll(ids);
+            return database.subList(2, 3);
+        });
+        assertEquals(Collections.singletonList(3), queried);
+        assertEquals(Arrays.asList(new User(1, "new", 10), new User(3, "old", 3)), users);
+        assertNull(writeBehind.load(2, () -> database.get(1)));
+        assertEquals(new User(3, "old", 3), writeBehind.load(3, () -> database.get(2)));
+    }
+
+    @Test
+    void flushWritesLastChangePerUserAndBumpsListStamp() {
+        table.rows.put(2, new User(2, "gone", 2));
+        writeBehind.save(new User(1, "first", 1));
+        writeBehind.save(new User(1, "second", 2));
+        writeBehind.delete(2);
+        writeBehind.save(new User(3, "third", 3));
+        String listVersion = versionStamps.current("user", "list");
+
+        flush();
+
+        assertEquals(new User(1, "second", 2), table.rows.get(1));
+        assertFalse(table.rows.containsKey(2));
+        assertEquals(new User(3, "third", 3), table.rows.get(3));
+        assertFalse(redisPoolService.exists(EmbeddedRedis.INDEXDB, PENDING));
+        assertFalse(redisPoolService.exists(EmbeddedRedis.INDEXDB, FLUSHING));
+        assertNotEquals(listVersion, versionStamps.current("user", "list"));
+        assertEquals(3, writeBehind.stats().getFlushed());
+    }
+
+    @Test
+    void interruptedFlushIsFinishedBeforeNewerChanges() {
+        writeBehind.save(new User(1, "older", 1));
+        // 模拟取出修改后进程退出：写回中 hash 留在 redis 中
+        redisScripts.execute("write_behind_take", Arrays.asList(PENDING, "write-behind:user:pending-since",
+                FLUSHING, "write-behind:user:flushing-since"), new ArrayList<>());
+        writeBehind.save(new User(1, "newer", 2));
+        assertEquals(new User(1, "newer", 2), writeBehind.load(1, () -> null));
+
+        flush();
+        assertEquals(new User(1, "older", 1), table.rows.get(1));
+        assertEquals(new User(1, "newer", 2), writeBehind.load(1, () -> null));
+
+        flush();
+        assertEquals(new User(1, "newer", 2), table.rows.get(1));
+        assertEquals(0, writeBehind.stats().getPending());
+    }
+
+    @Test
+    void rejectedAndUnparseableChangesAreMovedAsideWithoutBlockingOthers() {
+        writeBehind.save(new User(1, "ok", 1));
+        writeBehind.save(new User(2, "name too long for the column", 2));
+        writeBehind.save(new User(3, "ok", 3));
+        redisPoolService.hset(EmbeddedRedis.INDEXDB, PENDING, "4", "{not json");
+
+        flush();
+
+        assertEquals(new User(1, "ok", 1), table.rows.get(1));
+        assertEquals(new User(3, "ok", 3), table.rows.get(3));
+        assertFalse(table.rows.containsKey(2));
+        Map<String, String> failed = redisPoolService.hgetall(EmbeddedRedis.INDEXDB, FAILED);
+        assertEquals(2, failed.size());
+        assertEquals("{not json", failed.get("4"));
+        assertTrue(failed.get("2").contains("name too long"));
+        assertFalse(redisPoolService.exists(EmbeddedRedis.INDEXDB, FLUSHING));
+        assertEquals(2, writeBehind.stats().getFailed());
+    }
+
+    @Test
+    void databaseOutageKeepsChangesForRetry() {
+        writeBehind.save(new User(1, "ok", 1));
+        table.down = true;
+
+        flush();
+        assertTrue(redisPoolService.exists(EmbeddedRedis.INDEXDB, FLUSHING));
+        assertEquals(1, writeBehind.stats().getFailures());
+        assertEquals(0, writeBehind.stats().getFailed());
+
+        table.down = false;
+        flush();
+        assertEquals(new User(1, "ok", 1), table.rows.get(1));
+        assertFalse(redisPoolService.exists(EmbeddedRedis.INDEXDB, FLUSHING));
+    }
+
+    /**
+     * 模拟 user 表：name 超过 10 个字符时整个批次被拒绝，down 时数据库不可用
+     */
+    private static class FakeUserTable extends JdbcTemplate {
+
+        private final Map<Integer, User> rows = new ConcurrentHashMap<>();
+
+        private volatile boolean down;
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            batchArgs.forEach(args -> check(sql, args));
+            int[] counts = new int[batchArgs.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = apply(sql, batchArgs.get(i));
+            }
+            return counts;
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            check(sql, args);
+            return apply(sql, args);
+        }
+
+        private void check(String sql, Object[] args) {
+            if (down) {
+                throw new CannotGetJdbcConnectionException("database down");
+            }
+            if (sql.startsWith("insert") && ((String) args[1]).length() > 10) {
+                throw new DataIntegrityViolationException("Data too long for column 'name'");
+            }
+        }
+
+        private int apply(String sql, Object[] args) {
+            if (sql.startsWith("insert")) {
+                rows.put((Integer) args[0], new User((Integer) args[0], (String) args[1], (Integer) args[2]));
+                return 1;
+            }
+            return rows.remove(args[0]) == null ? 0 : 1;
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.tr.springboot.redis.service.impl;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import com.tr.springboot.redis.config.RedisConnections;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import redis.clients.jedis.ScanResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LettucePoolImplTest {
+
+    private static EmbeddedRedis redis;
+
+    private RedisClient client;
+
+    private RedisConnections connections;
+
+    private LettucePoolImpl lettuce;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        client = RedisClient.create();
+        // 只有一条独占连接，失败的连接如果被归还，下一次调用一定会借到它
+        GenericObjectPoolConfig<StatefulRedisConnection<String, String>> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(1);
+        config.setJmxEnabled(false);
+        RedisURI uri = RedisURI.builder().withHost("127.0.0.1").withPort(redis.port()).withTimeout(Duration.ofSeconds(5)).build();
+        connections = new RedisConnections(client, uri, config);
+        lettuce = EmbeddedRedis.inject(new LettucePoolImpl(), "redisConnections", connections);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connections.close();
+        client.shutdown();
+    }
+
+    @Test
+    void failedPipelineDoesNotLeakBufferedCommands() {
+        List<Object> failed = lettuce.pipelined(EmbeddedRedis.INDEXDB, p -> {
+            p.set("stale", "1");
+            throw new IllegalStateException("caller failed after buffering a command");
+        });
+        assertNull(failed);
+
+        List<Object> results = lettuce.pipelined(EmbeddedRedis.INDEXDB, p -> {
+            p.set("fresh", "1");
+            p.get("fresh");
+        });
+        assertEquals(Arrays.asList("OK", "1"), results);
+        assertFalse(redis.redisPoolService().exists(EmbeddedRedis.INDEXDB, "stale"));
+    }
+
+    @Test
+    void failedTransactionIsNotLeftOpen() {
+        assertNull(lettuce.transaction(EmbeddedRedis.INDEXDB, p -> {
+            p.set("stale", "1");
+            throw new IllegalStateException("caller failed inside MULTI");
+        }));
+
+        assertEquals(Collections.singletonList("OK"), lettuce.transaction(EmbeddedRedis.INDEXDB, p -> p.set("fresh", "1")));
+        assertEquals("1", lettuce.get(EmbeddedRedis.INDEXDB, "fresh"));
+        assertFalse(redis.redisPoolService().exists(EmbeddedRedis.INDEXDB, "stale"));
+    }
+
+    @Test
+    void binaryKeysRoundTripThroughScanDumpAndRestore() {
+        byte[] key = {(byte) 0xAC, (byte) 0xED, 0x00, 0x05, (byte) 0xFF};
+        redis.redisPoolService().setex(EmbeddedRedis.INDEXDB, key, new byte[]{1, 2, 3}, 600);
+
+        ScanResult<byte[]> page = lettuce.scan(EmbeddedRedis.INDEXDB, "0".getBytes(StandardCharsets.US_ASCII),
+                new byte[]{(byte) 0xAC, '*'}, 100);
+        assertEquals(1, page.getResult().size());
+        assertArrayEquals(key, page.getResult().get(0));
+
+        List<Object> dumped = lettuce.pipelined(EmbeddedRedis.INDEXDB, p -> {
+            p.dump(key);
+            p.pttl(key);
+        });
+        assertTrue((Long) dumped.get(1) > 0);
+        List<Object> restored = lettuce.pipelined(EmbeddedRedis.INDEXDB, p -> {
+            p.del(key);
+            p.restore(key, (Long) dumped.get(1), (byte[]) dumped.get(0));
+        });
+        assertEquals(Arrays.asList(1L, "OK"), restored);
+        assertArrayEquals(new byte[]{1, 2, 3}, redis.redisPoolService().get(EmbeddedRedis.INDEXDB, key));
+    }
+
+    @Test
+    void pipelinedZaddWritesEveryMember() {
+        Map<String, Double> scores = new HashMap<>();
+        scores.put("a", 1.0);
+        scores.put("b", 2.5);
+        assertEquals(Collections.singletonList(2L), lettuce.pipelined(EmbeddedRedis.INDEXDB, p -> p.zadd("board", scores)));
+        assertEquals(2.5, redis.redisPoolService().zscore(EmbeddedRedis.INDEXDB, "board", "b"));
+    }
+
+}
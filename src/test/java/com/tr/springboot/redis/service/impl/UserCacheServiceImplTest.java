@@ -0,0 +1,95 @@
+package com.tr.springboot.redis.service.impl;
+
+import com.tr.springboot.redis.EmbeddedRedis;
+import com.tr.springboot.redis.entity.User;
+import com.tr.springboot.redis.jpa.UserJpa;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheServiceImplTest {
+
+    private static EmbeddedRedis redis;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration("127.0.0.1", redis.port());
+        standalone.setDatabase(EmbeddedRedis.INDEXDB);
+        connectionFactory = new LettuceConnectionFactory(standalone);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void followsCacheConfigurationAndTtl() {
+        RedisCacheManager cacheManager = RedisCacheManager.builder(connectionFactory).cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                .prefixCacheNameWith("app:")
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
+                .entryTtl(Duration.ofMinutes(5))).build();
+        cacheManager.afterPropertiesSet();
+        Cache cache = cacheManager.getCache("user");
+        cache.put(1, new User(1, "james", 30));
+
+        UserJpa userJpa = mock(UserJpa.class);
+        when(userJpa.findAllById(Arrays.asList(2, 3))).thenReturn(Collections.singletonList(new User(2, "kobe", 40)));
+        UserCacheServiceImpl service = EmbeddedRedis.inject(new UserCacheServiceImpl(), "userJpa", userJpa,
+                "stringRedisTemplate", new StringRedisTemplate(connectionFactory), "cacheManager", cacheManager);
+        service.init();
+
+        // 1 由 cache.put 写入，2、3 从数据库加载
+        assertEquals(Arrays.asList(new User(1, "james", 30), new User(2, "kobe", 40), null, new User(1, "james", 30)),
+                service.findAllById(Arrays.asList(1, 2, 3, 1)));
+        verify(userJpa).findAllById(Arrays.asList(2, 3));
+
+        // 写回的数据由 cache.get 读取，不存在的用户缓存为 null，并带有缓存的有效期
+        assertEquals(new User(2, "kobe", 40), cache.get(2).get());
+        Cache.ValueWrapper cachedNull = cache.get(3);
+        assertTrue(cachedNull != null && cachedNull.get() == null);
+        long ttl = redis.redisPoolService().ttl(EmbeddedRedis.INDEXDB, "app:user::2");
+        assertTrue(ttl > 0 && ttl <= 300, "ttl " + ttl);
+
+        // 再次查询全部命中缓存
+        assertEquals(Arrays.asList(new User(2, "kobe", 40), null), service.findAllById(Arrays.asList(2, 3)));
+        verify(userJpa).findAllById(Arrays.asList(2, 3));
+        assertNull(cache.get(4));
+    }
+
+}